@@ -14,10 +14,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,8 +56,10 @@ public class AdminPaymentsServlet extends HttpServlet {
         try {
             // Get filter parameter
             String statusFilter = request.getParameter("status");
+            
             List<Payment> payments;
             
+            // Filtered lists come straight from the status index
             if ("pending".equalsIgnoreCase(statusFilter)) {
                 payments = paymentDAO.getPaymentsByStatus("PENDING");
                 request.setAttribute("activeFilter", "pending");
@@ -74,36 +76,26 @@ public class AdminPaymentsServlet extends HttpServlet {
             }
             
             // Get related bookings and users for display
-            Map<String, Booking> bookingsMap = new HashMap<>();
-            Map<String, User> usersMap = new HashMap<>();
+            Set<String> bookingIds = new HashSet<>();
+            Set<String> userIds = new HashSet<>();
             
             for (Payment payment : payments) {
-                // Get booking if not already in map
-                if (!bookingsMap.containsKey(payment.getBookingId())) {
-                    Booking booking = bookingDAO.getBookingById(payment.getBookingId());
-                    if (booking != null) {
-                        bookingsMap.put(payment.getBookingId(), booking);
-                    }
-                }
-                
-                // Get user if not already in map
-                if (!usersMap.containsKey(payment.getUserId())) {
-                    User user = userDAO.getUserById(payment.getUserId());
-                    if (user != null) {
-                        usersMap.put(payment.getUserId(), user);
-                    }
-                }
+                bookingIds.add(payment.getBookingId());
+                userIds.add(payment.getUserId());
             }
             
+            Map<String, Booking> bookingsMap = bookingDAO.getBookingsByIds(bookingIds);
+            Map<String, User> usersMap = userDAO.getUsersByIds(userIds);
+            
             // Set attributes
             request.setAttribute("payments", payments);
             request.setAttribute("bookingsMap", bookingsMap);
             request.setAttribute("usersMap", usersMap);
             
-            // Count payments by status
-            int pendingCount = paymentDAO.getPaymentsByStatus("PENDING").size();
-            int approvedCount = paymentDAO.getPaymentsByStatus("APPROVED").size();
-            int rejectedCount = paymentDAO.getPaymentsByStatus("REJECTED").size();
+            // Count payments by status from the index's live counts
+            int pendingCount = paymentDAO.countPaymentsByStatus("PENDING");
+            int approvedCount = paymentDAO.countPaymentsByStatus("APPROVED");
+            int rejectedCount = paymentDAO.countPaymentsByStatus("REJECTED");
             
             request.setAttribute("pendingCount", pendingCount);
             request.setAttribute("approvedCount", approvedCount);
@@ -119,4 +111,4 @@ public class AdminPaymentsServlet extends HttpServlet {
             request.getRequestDispatcher("/admin/payments.jsp").forward(request, response);
         }
     }
-}
\ No newline at end of file
+}
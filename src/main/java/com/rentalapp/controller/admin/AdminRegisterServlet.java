@@ -92,10 +92,7 @@ public class AdminRegisterServlet extends HttpServlet {
         
         // Check if username is already taken
         if (isValid) {
-            boolean usernameExists = adminDAO.getAllAdmins().stream()
-                    .anyMatch(admin -> admin.getUsername().equalsIgnoreCase(username));
-            
-            if (usernameExists) {
+            if (adminDAO.getByUsername(username) != null) {
                 request.setAttribute("usernameError", "Username already exists");
                 isValid = false;
             }
@@ -0,0 +1,96 @@
+package com.rentalapp.controller.admin;
+
+import com.rentalapp.dao.ReviewDAO;
+import com.rentalapp.dao.UserDAO;
+import com.rentalapp.dao.VehicleDAO;
+import com.rentalapp.model.Review;
+import com.rentalapp.model.User;
+import com.rentalapp.model.Vehicle;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Servlet for searching review comments by keyword
+ */
+@WebServlet("/admin/reviews")
+public class AdminReviewSearchServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminReviewSearchServlet.class);
+
+    // Most reviews shown for one search
+    private static final int MAX_RESULTS = 100;
+
+    private ReviewDAO reviewDAO;
+    private UserDAO userDAO;
+    private VehicleDAO vehicleDAO;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        reviewDAO = new ReviewDAO();
+        userDAO = new UserDAO();
+        vehicleDAO = new VehicleDAO();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        // Check if admin is logged in
+        HttpSession session = request.getSession(false);
+        if (session == null || session.getAttribute("isAdmin") == null ||
+                !(Boolean)session.getAttribute("isAdmin")) {
+            response.sendRedirect(request.getContextPath() + "/admin/login");
+            return;
+        }
+
+        try {
+            String query = request.getParameter("q");
+
+            List<Review> reviews = new ArrayList<>();
+            if (query != null && !query.trim().isEmpty()) {
+                reviews = reviewDAO.searchReviews(query, MAX_RESULTS);
+            }
+
+            // Get related users and vehicles for display
+            Set<String> userIds = new HashSet<>();
+            Set<String> vehicleIds = new HashSet<>();
+
+            for (Review review : reviews) {
+                userIds.add(review.getUserId());
+                vehicleIds.add(review.getVehicleId());
+            }
+
+            Map<String, User> usersMap = userDAO.getUsersByIds(userIds);
+            Map<String, Vehicle> vehiclesMap = vehicleDAO.getVehiclesByIds(vehicleIds);
+
+            // Set attributes
+            request.setAttribute("q", query);
+            request.setAttribute("reviews", reviews);
+            request.setAttribute("usersMap", usersMap);
+            request.setAttribute("vehiclesMap", vehiclesMap);
+            request.setAttribute("maxResults", MAX_RESULTS);
+
+            // Forward to admin review search page
+            request.getRequestDispatcher("/admin/reviews.jsp").forward(request, response);
+
+        } catch (Exception e) {
+            logger.error("Error searching reviews", e);
+            request.setAttribute("errorMessage", "An error occurred while searching reviews");
+            request.getRequestDispatcher("/admin/reviews.jsp").forward(request, response);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.rentalapp.controller.admin;
 
 import com.rentalapp.dao.VehicleDAO;
+import com.rentalapp.dao.VehicleSearchCriteria;
 import com.rentalapp.model.Vehicle;
 
 import javax.servlet.ServletException;
@@ -33,9 +34,6 @@ public class ManageVehiclesServlet extends HttpServlet {
             throws ServletException, IOException {
         
         try {
-            // Get all vehicles
-            List<Vehicle> vehicles = vehicleDAO.getAllVehicles();
-            
             // Get filter parameters
             String type = request.getParameter("type");
             String make = request.getParameter("make");
@@ -46,17 +44,17 @@ public class ManageVehiclesServlet extends HttpServlet {
             
             boolean filterAvailableOnly = "true".equals(availableOnly);
             
-            // Apply filters if provided
-            if (type != null || make != null || model != null || filterAvailableOnly) {
-                vehicles = vehicleDAO.searchVehicles(type, make, model, filterAvailableOnly);
-            }
-            
-            // Sort vehicles if requested
-            if ("price".equals(sortBy)) {
-                vehicles = vehicleDAO.sortByDailyRate(vehicles, "asc".equals(sortOrder));
-            } else if ("availability".equals(sortBy)) {
-                vehicles = vehicleDAO.sortByAvailability(vehicles);
+            // Apply filters and sort order through the vehicle indexes
+            VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+            criteria.setType(type);
+            criteria.setMake(make);
+            criteria.setModel(model);
+            criteria.setAvailableOnly(filterAvailableOnly);
+            if (VehicleSearchCriteria.SORT_PRICE.equals(sortBy) || VehicleSearchCriteria.SORT_AVAILABILITY.equals(sortBy)) {
+                criteria.setSortBy(sortBy);
+                criteria.setAscending("asc".equals(sortOrder));
             }
+            List<Vehicle> vehicles = vehicleDAO.search(criteria).getVehicles();
             
             // Get filter options for the form
             List<String> vehicleTypes = vehicleDAO.getVehicleTypes();
@@ -2,8 +2,10 @@ package com.rentalapp.controller.admin;
 
 import com.rentalapp.dao.BookingDAO;
 import com.rentalapp.dao.PaymentDAO;
+import com.rentalapp.dao.UpdateResult;
 import com.rentalapp.model.Booking;
 import com.rentalapp.model.Payment;
+import com.rentalapp.util.ValidationUtil;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -23,6 +25,7 @@ import org.slf4j.LoggerFactory;
 public class ProcessPaymentApprovalServlet extends HttpServlet {
     
     private static final Logger logger = LoggerFactory.getLogger(ProcessPaymentApprovalServlet.class);
+    private static final int BOOKING_UPDATE_ATTEMPTS = 3;
     
     private PaymentDAO paymentDAO;
     private BookingDAO bookingDAO;
@@ -50,6 +53,7 @@ public class ProcessPaymentApprovalServlet extends HttpServlet {
         String paymentId = request.getParameter("paymentId");
         String action = request.getParameter("action"); // approve or reject
         String notes = request.getParameter("notes");
+        long version = ValidationUtil.parseVersion(request.getParameter("version")); // version the admin was shown, if any
         
         if (paymentId == null || paymentId.isEmpty() || action == null || action.isEmpty()) {
             session.setAttribute("errorMessage", "Invalid request. Missing required parameters.");
@@ -86,6 +90,12 @@ public class ProcessPaymentApprovalServlet extends HttpServlet {
             
             String adminId = (String) session.getAttribute("adminId");
             boolean success = false;
+            boolean conflict = false;
+            
+            // Decide against the version the admin reviewed, so a change made meanwhile is not overwritten
+            if (version >= 0) {
+                payment.setVersion(version);
+            }
             
             if ("approve".equals(action)) {
                 // Approve payment
@@ -94,15 +104,17 @@ public class ProcessPaymentApprovalServlet extends HttpServlet {
                 payment.setProcessedDate(LocalDateTime.now());
                 payment.setNotes(notes);
                 
-                success = paymentDAO.updatePayment(payment);
+                UpdateResult result = paymentDAO.updatePaymentIfUnchanged(payment);
+                success = result == UpdateResult.UPDATED;
                 
                 if (success) {
                     // Update booking status to PAID
-                    booking.setStatus("PAID");
-                    bookingDAO.updateBooking(booking);
+                    markBookingPaid(booking);
                     
                     session.setAttribute("successMessage", "Payment approved successfully");
                     logger.info("Payment {} approved by admin {}", paymentId, adminId);
+                } else if (result == UpdateResult.CONFLICT) {
+                    conflict = true;
                 }
             } else if ("reject".equals(action)) {
                 // Reject payment
@@ -111,17 +123,24 @@ public class ProcessPaymentApprovalServlet extends HttpServlet {
                 payment.setProcessedDate(LocalDateTime.now());
                 payment.setNotes(notes);
                 
-                success = paymentDAO.updatePayment(payment);
+                UpdateResult result = paymentDAO.updatePaymentIfUnchanged(payment);
+                success = result == UpdateResult.UPDATED;
                 
                 if (success) {
                     session.setAttribute("successMessage", "Payment rejected");
                     logger.info("Payment {} rejected by admin {}", paymentId, adminId);
+                } else if (result == UpdateResult.CONFLICT) {
+                    conflict = true;
                 }
             } else {
                 session.setAttribute("errorMessage", "Invalid action");
             }
             
-            if (!success) {
+            if (conflict) {
+                session.setAttribute("errorMessage", 
+                        "This payment was changed by someone else while you were reviewing it. Please check it and try again.");
+                logger.info("Payment {} not processed by admin {}: changed concurrently", paymentId, adminId);
+            } else if (!success) {
                 session.setAttribute("errorMessage", "Failed to process payment. Please try again.");
             }
             
@@ -133,4 +152,29 @@ public class ProcessPaymentApprovalServlet extends HttpServlet {
         // Redirect back to admin payments page
         response.sendRedirect(request.getContextPath() + "/admin/payments");
     }
+    
+    /**
+     * Set a booking's status to PAID, reapplying the change on top of any
+     * update made to the booking since it was read
+     */
+    private void markBookingPaid(Booking booking) {
+        String bookingId = booking.getId();
+        for (int attempt = 0; attempt < BOOKING_UPDATE_ATTEMPTS; attempt++) {
+            booking.setStatus("PAID");
+            UpdateResult result = bookingDAO.updateBookingIfUnchanged(booking);
+            if (result == UpdateResult.UPDATED) {
+                return;
+            }
+            if (result != UpdateResult.CONFLICT) {
+                logger.warn("Booking {} not marked as paid: {}", bookingId, result);
+                return;
+            }
+            booking = bookingDAO.getBookingById(bookingId);
+            if (booking == null) {
+                logger.warn("Booking {} not marked as paid: it no longer exists", bookingId);
+                return;
+            }
+        }
+        logger.warn("Booking {} not marked as paid: it kept changing concurrently", bookingId);
+    }
 }
\ No newline at end of file
@@ -173,19 +173,20 @@ public class CreateBookingServlet extends HttpServlet {
         Vehicle vehicle = vehicleDAO.getVehicleById(vehicleId);
         booking.calculateTotalCost(vehicle.getDailyRate());
         
-        // Save to the data store
-        boolean success = bookingDAO.addBooking(booking);
+        // Save the booking and mark the vehicle as rented in one step; the
+        // availability is checked again there, since another booking may have won
+        BookingDAO.CreateResult result = bookingDAO.createBooking(booking);
         
-        if (success) {
-            // Mark vehicle as unavailable
-            vehicle.setAvailable(false);
-            vehicleDAO.updateVehicle(vehicle);
-            
+        if (result == BookingDAO.CreateResult.CREATED) {
             // Redirect to the booking details page
             response.sendRedirect(request.getContextPath() + "/bookings/details?id=" + booking.getId());
         } else {
             // Redisplay the form with an error message
-            request.setAttribute("errorMessage", "Failed to create booking. Please try again.");
+            if (result == BookingDAO.CreateResult.UNAVAILABLE) {
+                request.setAttribute("dateRangeError", "Vehicle is not available for the selected dates");
+            } else {
+                request.setAttribute("errorMessage", "Failed to create booking. Please try again.");
+            }
             request.setAttribute("startDate", startDateStr);
             request.setAttribute("endDate", endDateStr);
             request.setAttribute("vehicle", vehicle);
@@ -205,8 +205,8 @@ public class UpdateBookingServlet extends HttpServlet {
         // Recalculate total cost
         booking.calculateTotalCost(vehicle.getDailyRate());
         
-        // Save to the data store
-        boolean success = bookingDAO.updateBooking(booking);
+        // Save to the data store, checking the dates again in case another booking took them
+        boolean success = bookingDAO.rescheduleBooking(booking);
         
         if (success) {
             // Redirect to the booking details page
@@ -214,7 +214,11 @@ public class UpdateBookingServlet extends HttpServlet {
             response.sendRedirect(request.getContextPath() + "/bookings/details?id=" + booking.getId());
         } else {
             // Redisplay the form with an error message
-            request.setAttribute("errorMessage", "Failed to update booking. Please try again.");
+            if (!bookingDAO.isVehicleAvailable(booking.getVehicleId(), startDate, endDate, bookingId)) {
+                request.setAttribute("dateRangeError", "Vehicle is not available for the selected dates");
+            } else {
+                request.setAttribute("errorMessage", "Failed to update booking. Please try again.");
+            }
             request.setAttribute("booking", booking);
             request.setAttribute("vehicle", vehicle);
             
@@ -17,7 +17,10 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -90,14 +93,22 @@ public class ViewBookingServlet extends HttpServlet {
             }
         }
         
-        // Load vehicle details for each booking
+        // Load vehicle (and, for admins, user) details for all bookings in one lookup each
+        Set<String> vehicleIds = new HashSet<>();
+        Set<String> userIds = new HashSet<>();
         for (Booking booking : bookings) {
-            Vehicle vehicle = vehicleDAO.getVehicleById(booking.getVehicleId());
-            request.setAttribute("vehicle_" + booking.getId(), vehicle);
+            vehicleIds.add(booking.getVehicleId());
+            userIds.add(booking.getUserId());
+        }
+        
+        Map<String, Vehicle> vehicles = vehicleDAO.getVehiclesByIds(vehicleIds);
+        Map<String, User> users = isAdmin ? userDAO.getUsersByIds(userIds) : null;
+        
+        for (Booking booking : bookings) {
+            request.setAttribute("vehicle_" + booking.getId(), vehicles.get(booking.getVehicleId()));
             
             if (isAdmin) {
-                User user = userDAO.getUserById(booking.getUserId());
-                request.setAttribute("user_" + booking.getId(), user);
+                request.setAttribute("user_" + booking.getId(), users.get(booking.getUserId()));
             }
         }
         
@@ -1,5 +1,6 @@
 package com.rentalapp.controller.review;
 
+import com.rentalapp.dao.RatingSummary;
 import com.rentalapp.dao.ReviewDAO;
 import com.rentalapp.dao.UserDAO;
 import com.rentalapp.dao.VehicleDAO;
@@ -15,7 +16,10 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -74,13 +78,20 @@ public class ViewReviewsServlet extends HttpServlet {
             reviews = reviewDAO.getReviewsByUser(userId);
         }
         
-        // Load user and vehicle details for each review
+        // Load user and vehicle details for all reviews in one lookup each
+        Set<String> userIds = new HashSet<>();
+        Set<String> vehicleIds = new HashSet<>();
         for (Review review : reviews) {
-            User user = userDAO.getUserById(review.getUserId());
-            Vehicle vehicle = vehicleDAO.getVehicleById(review.getVehicleId());
-            
-            request.setAttribute("user_" + review.getId(), user);
-            request.setAttribute("vehicle_" + review.getId(), vehicle);
+            userIds.add(review.getUserId());
+            vehicleIds.add(review.getVehicleId());
+        }
+        
+        Map<String, User> users = userDAO.getUsersByIds(userIds);
+        Map<String, Vehicle> vehicles = vehicleDAO.getVehiclesByIds(vehicleIds);
+        
+        for (Review review : reviews) {
+            request.setAttribute("user_" + review.getId(), users.get(review.getUserId()));
+            request.setAttribute("vehicle_" + review.getId(), vehicles.get(review.getVehicleId()));
         }
         
         // Set attributes for the JSP
@@ -116,18 +127,24 @@ public class ViewReviewsServlet extends HttpServlet {
         
         // Get reviews for the vehicle
         List<Review> reviews = reviewDAO.getReviewsByVehicle(vehicleId);
-        double averageRating = reviewDAO.getAverageRatingForVehicle(vehicleId);
+        RatingSummary ratingSummary = reviewDAO.getRatingSummary(vehicleId);
+        
+        // Load user details for all reviews in one lookup
+        Set<String> userIds = new HashSet<>();
+        for (Review review : reviews) {
+            userIds.add(review.getUserId());
+        }
         
-        // Load user details for each review
+        Map<String, User> users = userDAO.getUsersByIds(userIds);
         for (Review review : reviews) {
-            User user = userDAO.getUserById(review.getUserId());
-            request.setAttribute("user_" + review.getId(), user);
+            request.setAttribute("user_" + review.getId(), users.get(review.getUserId()));
         }
         
         // Set attributes for the JSP
         request.setAttribute("vehicle", vehicle);
         request.setAttribute("reviews", reviews);
-        request.setAttribute("averageRating", averageRating);
+        request.setAttribute("averageRating", ratingSummary.getAverage());
+        request.setAttribute("ratingSummary", ratingSummary);
         
         // Forward to the vehicle reviews page
         request.getRequestDispatcher("/review/vehicle-reviews.jsp").forward(request, response);
@@ -0,0 +1,43 @@
+package com.rentalapp.controller.system;
+
+import com.rentalapp.dao.DataFileLoad;
+import com.rentalapp.dao.DataWarmUp;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Readiness check for load balancers and deploy scripts: 200 once every data
+ * file has been loaded into memory, 503 while the startup warm-up is still
+ * running or if it failed. The body lists the state and how each file loaded.
+ */
+@WebServlet(name = "ReadinessServlet", urlPatterns = {"/ready"})
+public class ReadinessServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        response.setStatus(DataWarmUp.isReady()
+                ? HttpServletResponse.SC_OK
+                : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+
+        PrintWriter out = response.getWriter();
+        out.println(DataWarmUp.getState());
+        if (DataWarmUp.getTotalMillis() > 0) {
+            out.println("warm-up took " + DataWarmUp.getTotalMillis() + " ms");
+        }
+        for (DataFileLoad load : DataWarmUp.getLoads()) {
+            out.println(load);
+        }
+    }
+}
@@ -95,6 +95,9 @@ public class RegisterServlet extends HttpServlet {
         } else if (!ValidationUtil.isValidEmail(email)) {
             request.setAttribute("emailError", "Invalid email format");
             isValid = false;
+        } else if (userDAO.isEmailTaken(email)) {
+            request.setAttribute("emailError", "An account with this email already exists");
+            isValid = false;
         }
         
         // Phone validation
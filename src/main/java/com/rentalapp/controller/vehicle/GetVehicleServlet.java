@@ -1,11 +1,15 @@
 package com.rentalapp.controller.vehicle;
 
 import com.rentalapp.dao.BookingDAO;
+import com.rentalapp.dao.RatingSummary;
 import com.rentalapp.dao.ReviewDAO;
 import com.rentalapp.dao.VehicleDAO;
+import com.rentalapp.dao.VehicleSearchCriteria;
+import com.rentalapp.dao.VehicleSearchResult;
 import com.rentalapp.model.Booking;
 import com.rentalapp.model.Review;
 import com.rentalapp.model.Vehicle;
+import com.rentalapp.util.ValidationUtil;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -15,6 +19,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -26,6 +31,9 @@ public class GetVehicleServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
     private static final Logger LOGGER = Logger.getLogger(GetVehicleServlet.class.getName());
     
+    // Vehicles per page of the browse list (a multiple of the three-card grid row)
+    private static final int PAGE_SIZE = 12;
+    
     private VehicleDAO vehicleDAO;
     private ReviewDAO reviewDAO;
     private BookingDAO bookingDAO;
@@ -56,44 +64,88 @@ public class GetVehicleServlet extends HttpServlet {
      */
     private void handleVehicleList(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         // Get filter parameters
+        String query = request.getParameter("q");
         String type = request.getParameter("type");
         String make = request.getParameter("make");
         String model = request.getParameter("model");
+        String priceRange = request.getParameter("priceRange");
         String availableOnly = request.getParameter("availableOnly");
         String sortBy = request.getParameter("sortBy");
         String sortOrder = request.getParameter("sortOrder");
+        String startDateStr = request.getParameter("startDate");
+        String endDateStr = request.getParameter("endDate");
         
         boolean filterAvailableOnly = "true".equals(availableOnly);
+        int page = parsePage(request.getParameter("page"));
+        
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setQuery(query);
+        criteria.setType(type);
+        criteria.setMake(make);
+        criteria.setModel(model);
+        criteria.setPriceRange(priceRange);
+        criteria.setAvailableOnly(filterAvailableOnly);
         
-        // Get vehicles based on filter criteria
-        List<Vehicle> vehicles = vehicleDAO.searchVehicles(type, make, model, filterAvailableOnly);
+        // Keep only vehicles that are free for the whole requested period
+        if (ValidationUtil.isValidDate(startDateStr) && ValidationUtil.isValidDate(endDateStr)) {
+            LocalDate startDate = LocalDate.parse(startDateStr);
+            LocalDate endDate = LocalDate.parse(endDateStr);
+            
+            if (!endDate.isBefore(startDate)) {
+                criteria.setFreeBetween(startDate, endDate);
+            } else {
+                request.setAttribute("dateRangeError", "End date must be after start date");
+            }
+        }
         
         // Sort vehicles if requested
-        if ("price".equals(sortBy)) {
-            vehicles = vehicleDAO.sortByDailyRate(vehicles, "asc".equals(sortOrder));
-        } else if ("availability".equals(sortBy)) {
-            vehicles = vehicleDAO.sortByAvailability(vehicles);
+        if (VehicleSearchCriteria.SORT_PRICE.equals(sortBy) || VehicleSearchCriteria.SORT_AVAILABILITY.equals(sortBy)) {
+            criteria.setSortBy(sortBy);
+            criteria.setAscending("asc".equals(sortOrder));
         }
+        // In long, so a huge page number gives an empty page rather than wrapping round to the first
+        criteria.setPage((int) Math.min((page - 1L) * PAGE_SIZE, Integer.MAX_VALUE), PAGE_SIZE);
         
-        // Get filter options for the form
-        List<String> vehicleTypes = vehicleDAO.getVehicleTypes();
-        List<String> vehicleMakes = vehicleDAO.getVehicleMakes();
+        // Get one page of vehicles, with the counts for the filter sidebar
+        VehicleSearchResult searchResult = vehicleDAO.search(criteria);
+        List<Vehicle> vehicles = searchResult.getVehicles();
+        int totalPages = Math.max(1, (searchResult.getTotalCount() + PAGE_SIZE - 1) / PAGE_SIZE);
         
         // Set attributes for the JSP
         request.setAttribute("vehicles", vehicles);
-        request.setAttribute("vehicleTypes", vehicleTypes);
-        request.setAttribute("vehicleMakes", vehicleMakes);
+        // The facet counts list every type and make, so they double as the filter options
+        request.setAttribute("typeCounts", searchResult.getTypeCounts());
+        request.setAttribute("makeCounts", searchResult.getMakeCounts());
+        request.setAttribute("priceCounts", searchResult.getPriceCounts());
+        request.setAttribute("q", query);
         request.setAttribute("type", type);
         request.setAttribute("make", make);
         request.setAttribute("model", model);
+        request.setAttribute("priceRange", priceRange);
         request.setAttribute("availableOnly", filterAvailableOnly);
         request.setAttribute("sortBy", sortBy);
         request.setAttribute("sortOrder", sortOrder);
+        request.setAttribute("startDate", startDateStr);
+        request.setAttribute("endDate", endDateStr);
+        request.setAttribute("currentPage", page);
+        request.setAttribute("totalPages", totalPages);
+        request.setAttribute("totalCount", searchResult.getTotalCount());
         
         // Forward to the vehicle list page
         request.getRequestDispatcher("/vehicle/list.jsp").forward(request, response);
     }
     
+    /**
+     * Parse the 1-based page number, defaulting to the first page
+     */
+    private static int parsePage(String page) {
+        try {
+            return page != null ? Math.max(1, Integer.parseInt(page)) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+    
     /**
      * Handles the display of details for a specific vehicle.
      */
@@ -122,7 +174,7 @@ public class GetVehicleServlet extends HttpServlet {
         
         // Get reviews for the vehicle
         List<Review> reviews = reviewDAO.getReviewsByVehicle(vehicleId);
-        double averageRating = reviewDAO.getAverageRatingForVehicle(vehicleId);
+        RatingSummary ratingSummary = reviewDAO.getRatingSummary(vehicleId);
         
         // Check if the user has already reviewed this vehicle
         HttpSession session = request.getSession(false);
@@ -147,7 +199,8 @@ public class GetVehicleServlet extends HttpServlet {
         // Set attributes for the JSP
         request.setAttribute("vehicle", vehicle);
         request.setAttribute("reviews", reviews);
-        request.setAttribute("averageRating", averageRating);
+        request.setAttribute("averageRating", ratingSummary.getAverage());
+        request.setAttribute("ratingSummary", ratingSummary);
         request.setAttribute("userCanReview", userCanReview);
         
         // Forward to the vehicle details page
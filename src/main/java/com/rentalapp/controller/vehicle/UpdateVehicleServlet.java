@@ -1,5 +1,6 @@
 package com.rentalapp.controller.vehicle;
 
+import com.rentalapp.dao.UpdateResult;
 import com.rentalapp.dao.VehicleDAO;
 import com.rentalapp.model.Vehicle;
 import com.rentalapp.util.ValidationUtil;
@@ -86,6 +87,7 @@ public class UpdateVehicleServlet extends HttpServlet {
         String availableStr = request.getParameter("available");
         String imageUrl = ValidationUtil.sanitizeString(request.getParameter("imageUrl"));
         String description = ValidationUtil.sanitizeString(request.getParameter("description"));
+        long version = ValidationUtil.parseVersion(request.getParameter("version"));
         
         // Check if the vehicle exists
         Vehicle existingVehicle = vehicleDAO.getVehicleById(id);
@@ -175,6 +177,7 @@ public class UpdateVehicleServlet extends HttpServlet {
             vehicle.setAvailable(available);
             vehicle.setImageUrl(imageUrl);
             vehicle.setDescription(description);
+            vehicle.setVersion(version >= 0 ? version : existingVehicle.getVersion());
             
             request.setAttribute("vehicle", vehicle);
             request.getRequestDispatcher("/vehicle/edit.jsp").forward(request, response);
@@ -192,13 +195,25 @@ public class UpdateVehicleServlet extends HttpServlet {
         existingVehicle.setImageUrl(imageUrl);
         existingVehicle.setDescription(description);
         
-        // Save to the data store
-        boolean success = vehicleDAO.updateVehicle(existingVehicle);
+        // Save against the version the form was loaded with, so edits made by someone else meanwhile are not lost
+        if (version >= 0) {
+            existingVehicle.setVersion(version);
+        }
+        UpdateResult result = vehicleDAO.updateVehicleIfUnchanged(existingVehicle);
         
-        if (success) {
+        if (result == UpdateResult.UPDATED) {
             // Redirect to the vehicle list page with a success message
             session.setAttribute("successMessage", "Vehicle updated successfully");
             response.sendRedirect(request.getContextPath() + "/vehicles");
+        } else if (result == UpdateResult.CONFLICT) {
+            // Show the current details so the admin can reapply their changes
+            request.setAttribute("errorMessage", "This vehicle was changed by someone else while you were editing it. "
+                    + "The form now shows the current details; please make your changes again.");
+            request.setAttribute("vehicle", vehicleDAO.getVehicleById(id));
+            request.getRequestDispatcher("/vehicle/edit.jsp").forward(request, response);
+        } else if (result == UpdateResult.NOT_FOUND) {
+            session.setAttribute("errorMessage", "Vehicle not found");
+            response.sendRedirect(request.getContextPath() + "/vehicles");
         } else {
             // Redisplay the form with an error message
             request.setAttribute("errorMessage", "Failed to update vehicle. Please try again.");
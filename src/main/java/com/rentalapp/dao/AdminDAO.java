@@ -1,18 +1,22 @@
 package com.rentalapp.dao;
 
 import com.rentalapp.model.Admin;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Data Access Object for Admin operations
@@ -22,6 +26,18 @@ public class AdminDAO {
     private static final Logger logger = LoggerFactory.getLogger(AdminDAO.class);
     private static final String ADMINS_FILE_PATH = "src/main/resources/data/admins.txt";
     
+    // Shared by every DAO instance so the file is parsed only once
+    private static final AdminStore STORE = new AdminStore(AdminDAO::readAdminsFile);
+    
+    /**
+     * Load the admins, with their login indexes, ahead of the first request
+     * 
+     * @return the number of records loaded
+     */
+    static int warmUp() {
+        return STORE.size();
+    }
+    
     /**
      * Default constructor
      */
@@ -30,16 +46,17 @@ public class AdminDAO {
     }
     
     /**
-     * Authenticate an admin based on username and password
+     * Authenticate an admin by username or email (case-insensitive) and password
      */
-    public Admin authenticate(String username, String password) {
+    public Admin authenticate(String login, String password) {
         try {
-            List<Admin> admins = getAllAdmins();
+            Admin admin = STORE.findByUsername(login);
+            if (admin == null) {
+                admin = STORE.findByEmail(login);
+            }
             
-            for (Admin admin : admins) {
-                if (admin.getUsername().equals(username) && admin.getPassword().equals(password)) {
-                    return admin;
-                }
+            if (admin != null && admin.getPassword().equals(password)) {
+                return admin;
             }
         } catch (Exception e) {
             logger.error("Error authenticating admin", e);
@@ -52,39 +69,42 @@ public class AdminDAO {
      * Get admin by ID
      */
     public Admin getById(String id) {
-        try {
-            List<Admin> admins = getAllAdmins();
-            
-            for (Admin admin : admins) {
-                if (admin.getId().equals(id)) {
-                    return admin;
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error getting admin by ID", e);
-        }
-        
-        return null;
+        return RequestIdentityMap.lookup(ADMINS_FILE_PATH, id, () -> STORE.get(id));
+    }
+    
+    /**
+     * Get admin by username (case-insensitive)
+     */
+    public Admin getByUsername(String username) {
+        return STORE.findByUsername(username);
     }
     
     /**
      * Get all admins from the data file
      */
     public List<Admin> getAllAdmins() {
+        return STORE.getAll();
+    }
+    
+    /**
+     * Parse every admin in the data file
+     */
+    private static List<Admin> readAdminsFile() {
         List<Admin> admins = new ArrayList<>();
+        RecordCodec record = new RecordCodec();
         
         try (BufferedReader reader = new BufferedReader(new FileReader(ADMINS_FILE_PATH))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (!line.trim().isEmpty()) {
-                    Admin admin = parseAdminFromLine(line);
+                    Admin admin = parseAdminFromLine(line, record);
                     if (admin != null) {
                         admins.add(admin);
                     }
                 }
             }
         } catch (IOException e) {
-            logger.error("Error reading admins file", e);
+            throw new UncheckedIOException("Error reading admins file", e);
         }
         
         return admins;
@@ -95,84 +115,59 @@ public class AdminDAO {
      */
     public boolean addAdmin(Admin admin) {
         if (admin.getId() == null || admin.getId().trim().isEmpty()) {
-            admin.setId(UUID.randomUUID().toString());
+            admin.setId(FileUtil.generateUniqueId());
         }
         
-        try {
-            String adminRecord = formatAdminToLine(admin);
+        RequestIdentityMap.invalidate(ADMINS_FILE_PATH);
+        return STORE.add(admin, a -> {
             Path path = Paths.get(ADMINS_FILE_PATH);
-            Files.write(path, (adminRecord + System.lineSeparator()).getBytes(), 
-                    Files.exists(path) ? java.nio.file.StandardOpenOption.APPEND : java.nio.file.StandardOpenOption.CREATE);
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error adding admin", e);
-            return false;
-        }
+            Files.write(path, (formatAdminToLine(a) + System.lineSeparator()).getBytes(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        });
     }
     
     /**
      * Update an existing admin
      */
     public boolean updateAdmin(Admin admin) {
-        try {
-            List<Admin> admins = getAllAdmins();
-            List<String> lines = new ArrayList<>();
-            
-            for (Admin existingAdmin : admins) {
-                if (existingAdmin.getId().equals(admin.getId())) {
-                    lines.add(formatAdminToLine(admin));
-                } else {
-                    lines.add(formatAdminToLine(existingAdmin));
-                }
-            }
-            
-            Files.write(Paths.get(ADMINS_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error updating admin", e);
-            return false;
-        }
+        RequestIdentityMap.invalidate(ADMINS_FILE_PATH);
+        return STORE.replace(admin, AdminDAO::writeAdminsFile);
     }
     
     /**
      * Delete an admin by ID
      */
     public boolean deleteAdmin(String adminId) {
-        try {
-            List<Admin> admins = getAllAdmins();
-            List<String> lines = new ArrayList<>();
-            
-            for (Admin admin : admins) {
-                if (!admin.getId().equals(adminId)) {
-                    lines.add(formatAdminToLine(admin));
-                }
-            }
-            
-            Files.write(Paths.get(ADMINS_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error deleting admin", e);
-            return false;
+        RequestIdentityMap.invalidate(ADMINS_FILE_PATH);
+        return STORE.remove(adminId, AdminDAO::writeAdminsFile);
+    }
+    
+    /**
+     * Rewrite the data file with the given admins
+     */
+    private static void writeAdminsFile(Collection<Admin> admins) throws IOException {
+        List<String> lines = new ArrayList<>(admins.size());
+        for (Admin admin : admins) {
+            lines.add(formatAdminToLine(admin));
         }
+        
+        FileUtil.replaceFile(Paths.get(ADMINS_FILE_PATH), lines);
     }
     
     /**
      * Parse an admin from a line in the data file
      */
-    private Admin parseAdminFromLine(String line) {
-        String[] parts = line.split("\\|");
+    private static Admin parseAdminFromLine(String line, RecordCodec record) {
+        record.reset(line, RecordCodec.PIPE);
         
-        if (parts.length >= 6) {
+        if (record.fieldCount() >= 6) {
             Admin admin = new Admin();
-            admin.setId(parts[0]);
-            admin.setUsername(parts[1]);
-            admin.setPassword(parts[2]);
-            admin.setFullName(parts[3]);
-            admin.setEmail(parts[4]);
-            admin.setRole(parts[5]);
+            admin.setId(record.getString(0));
+            admin.setUsername(record.getString(1));
+            admin.setPassword(record.getString(2));
+            admin.setFullName(record.getString(3));
+            admin.setEmail(record.getString(4));
+            admin.setRole(record.getString(5));
             
             return admin;
         }
@@ -183,7 +178,7 @@ public class AdminDAO {
     /**
      * Format an admin as a line for the data file
      */
-    private String formatAdminToLine(Admin admin) {
+    private static String formatAdminToLine(Admin admin) {
         return String.join("|", 
                 admin.getId(),
                 admin.getUsername(),
@@ -0,0 +1,86 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Admin;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Shared in-memory copy of admins.txt, indexed by admin id and by case-folded
+ * email and username, so a login is a single lookup
+ */
+class AdminStore extends EntityStore<Admin> {
+
+    private final Supplier<List<Admin>> loader;
+
+    // Admin IDs per case-folded email and username, in file order
+    private final KeyIndex idsByEmail = new KeyIndex();
+    private final KeyIndex idsByUsername = new KeyIndex();
+
+    AdminStore(Supplier<List<Admin>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Get a copy of the first admin with an email (case-insensitive), or null
+     */
+    Admin findByEmail(String email) {
+        return read(() -> first(idsByEmail.get(KeyIndex.foldCase(email))));
+    }
+
+    /**
+     * Get a copy of the first admin with a username (case-insensitive), or null
+     */
+    Admin findByUsername(String username) {
+        return read(() -> first(idsByUsername.get(KeyIndex.foldCase(username))));
+    }
+
+    @Override
+    protected List<Admin> loadAll() {
+        return loader.get();
+    }
+
+    @Override
+    protected String idOf(Admin admin) {
+        return admin.getId();
+    }
+
+    @Override
+    protected Admin copyOf(Admin admin) {
+        return new Admin(admin);
+    }
+
+    @Override
+    protected void indexAdded(Admin admin) {
+        idsByEmail.add(KeyIndex.foldCase(admin.getEmail()), admin.getId());
+        idsByUsername.add(KeyIndex.foldCase(admin.getUsername()), admin.getId());
+    }
+
+    @Override
+    protected void indexRemoved(Admin admin) {
+        idsByEmail.remove(KeyIndex.foldCase(admin.getEmail()), admin.getId());
+        idsByUsername.remove(KeyIndex.foldCase(admin.getUsername()), admin.getId());
+    }
+
+    @Override
+    protected void indexReplaced(Admin previous, Admin current) {
+        idsByEmail.move(KeyIndex.foldCase(previous.getEmail()), KeyIndex.foldCase(current.getEmail()), current.getId());
+        idsByUsername.move(KeyIndex.foldCase(previous.getUsername()), KeyIndex.foldCase(current.getUsername()), current.getId());
+    }
+
+    @Override
+    protected void indexCleared() {
+        idsByEmail.clear();
+        idsByUsername.clear();
+    }
+
+    private Admin first(Iterable<String> ids) {
+        Iterator<String> it = ids.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        Admin admin = peek(it.next());
+        return admin != null ? copyOf(admin) : null;
+    }
+}
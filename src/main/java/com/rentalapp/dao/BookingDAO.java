@@ -3,11 +3,16 @@ package com.rentalapp.dao;
 import com.rentalapp.model.Booking;
 import com.rentalapp.model.Vehicle;
 import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -18,6 +23,65 @@ import java.util.stream.Collectors;
 public class BookingDAO {
     private static final Logger LOGGER = Logger.getLogger(BookingDAO.class.getName());
     private static final String BOOKINGS_FILE = "bookings.txt";
+    private static final String BOOKINGS_LOG_FILE = "bookings.log";
+    private static final String BOOKING_INTENTS_FILE = "booking-intents.log";
+    private static final long COMPACTION_PERIOD_SECONDS = 60;
+    private static final int VEHICLE_LOCK_STRIPES = 64;
+    
+    // Log-structured mode appends updates and deletes to bookings.log instead of rewriting bookings.txt
+    private static final boolean LOG_STRUCTURED =
+            Boolean.parseBoolean(System.getProperty("rentalapp.bookings.logStructured", "true"));
+    
+    private static final BookingJournal JOURNAL = new BookingJournal(BOOKINGS_FILE, BOOKINGS_LOG_FILE);
+    private static final BookingStore STORE = new BookingStore(BookingDAO::readBookings);
+    private static final BookingTransactions TRANSACTIONS = new BookingTransactions(BOOKING_INTENTS_FILE, VEHICLE_LOCK_STRIPES);
+    
+    /**
+     * Result of {@link #createBooking(Booking)}
+     */
+    public enum CreateResult {
+        /** The booking was added and its vehicle marked as rented */
+        CREATED,
+        /** Another booking of the vehicle overlaps the dates */
+        UNAVAILABLE,
+        /** The booking could not be written */
+        FAILED
+    }
+    
+    /**
+     * Starts background compaction of the booking log.
+     */
+    public static void startLogCompaction() {
+        if (LOG_STRUCTURED) {
+            JOURNAL.startCompaction(STORE, COMPACTION_PERIOD_SECONDS);
+        }
+    }
+    
+    /**
+     * Finishes or drops booking transactions interrupted by a crash. Call once at
+     * startup, before any booking is created.
+     */
+    public static void recoverTransactions() {
+        TRANSACTIONS.recover(new BookingDAO(), new VehicleDAO());
+    }
+    
+    /**
+     * Loads the bookings, with their availability indexes, ahead of the first request.
+     * 
+     * @return the number of records loaded
+     */
+    static int warmUp() {
+        return STORE.size();
+    }
+    
+    /**
+     * Stops background compaction, folding any outstanding log entries into the snapshot.
+     */
+    public static void stopLogCompaction() {
+        if (LOG_STRUCTURED) {
+            JOURNAL.stopCompaction(STORE);
+        }
+    }
     
     /**
      * Retrieves all bookings from the data store.
@@ -25,18 +89,7 @@ public class BookingDAO {
      * @return a list of all bookings
      */
     public List<Booking> getAllBookings() {
-        List<String> lines = FileUtil.readAllLines(BOOKINGS_FILE);
-        List<Booking> bookings = new ArrayList<>();
-        
-        for (String line : lines) {
-            try {
-                bookings.add(Booking.fromString(line));
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Error parsing booking line: " + line, e);
-            }
-        }
-        
-        return bookings;
+        return STORE.getAll();
     }
     
     /**
@@ -46,15 +99,17 @@ public class BookingDAO {
      * @return the booking with the specified ID, or null if not found
      */
     public Booking getBookingById(String id) {
-        List<Booking> bookings = getAllBookings();
-        
-        for (Booking booking : bookings) {
-            if (booking.getId().equals(id)) {
-                return booking;
-            }
-        }
-        
-        return null;
+        return RequestIdentityMap.lookup(BOOKINGS_FILE, id, () -> STORE.get(id));
+    }
+    
+    /**
+     * Retrieves several bookings by ID in one lookup.
+     * 
+     * @param ids the IDs of the bookings to retrieve
+     * @return the bookings found, keyed by ID; IDs with no booking are left out
+     */
+    public Map<String, Booking> getBookingsByIds(Collection<String> ids) {
+        return STORE.getByIds(ids);
     }
     
     /**
@@ -68,17 +123,35 @@ public class BookingDAO {
             return false;
         }
         
-        // Check if booking already exists
-        if (getBookingById(booking.getId()) != null) {
-            return false;
-        }
-        
         // Set booking date if not already set
         if (booking.getBookingDate() == null) {
             booking.setBookingDate(LocalDate.now());
         }
         
-        return FileUtil.appendLine(BOOKINGS_FILE, booking.toString());
+        RequestIdentityMap.invalidate(BOOKINGS_FILE);
+        
+        // The store rejects duplicate IDs; concurrent adds share one group commit
+        boolean added = STORE.addQueued(booking, b -> FileUtil.appendLineAsync(BOOKINGS_FILE, b.toString()));
+        if (added) {
+            DashboardStatistics.getInstance().bookingAdded(booking);
+        }
+        return added;
+    }
+    
+    /**
+     * Books a vehicle: checks it is free for the booking's dates, adds the
+     * booking and marks the vehicle as rented, all or nothing. Concurrent
+     * bookings of the same vehicle are handled one at a time, so two of them
+     * cannot both pass the availability check.
+     * 
+     * @param booking the booking to create, with its ID, vehicle and dates set
+     * @return the outcome
+     */
+    public CreateResult createBooking(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getId().isEmpty() || booking.getVehicleId() == null) {
+            return CreateResult.FAILED;
+        }
+        return TRANSACTIONS.create(booking, this, new VehicleDAO());
     }
     
     /**
@@ -92,26 +165,52 @@ public class BookingDAO {
             return false;
         }
         
-        List<Booking> bookings = getAllBookings();
-        boolean found = false;
+        RequestIdentityMap.invalidate(BOOKINGS_FILE);
         
-        for (int i = 0; i < bookings.size(); i++) {
-            if (bookings.get(i).getId().equals(booking.getId())) {
-                bookings.set(i, booking);
-                found = true;
-                break;
-            }
+        boolean updated = LOG_STRUCTURED
+                ? STORE.replaceJournaled(booking, JOURNAL::appendUpdate)
+                : STORE.replace(booking, BookingDAO::writeBookings);
+        if (updated) {
+            DashboardStatistics.getInstance().bookingUpdated(booking);
         }
-        
-        if (!found) {
-            return false;
+        return updated;
+    }
+    
+    /**
+     * Updates a booking only if nobody else has updated it since it was read.
+     * 
+     * @param booking the changed booking, still carrying the version it was read at
+     * @return CONFLICT if the stored booking has moved on, in which case nothing is saved
+     */
+    public UpdateResult updateBookingIfUnchanged(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getId().isEmpty()) {
+            return UpdateResult.NOT_FOUND;
         }
         
-        List<String> lines = bookings.stream()
-                .map(Booking::toString)
-                .collect(Collectors.toList());
+        RequestIdentityMap.invalidate(BOOKINGS_FILE);
         
-        return FileUtil.writeAllLines(BOOKINGS_FILE, lines);
+        UpdateResult result = LOG_STRUCTURED
+                ? STORE.replaceJournaledIfUnchanged(booking, JOURNAL::appendUpdate)
+                : STORE.replaceIfUnchanged(booking, BookingDAO::writeBookings);
+        if (result == UpdateResult.UPDATED) {
+            DashboardStatistics.getInstance().bookingUpdated(booking);
+        }
+        return result;
+    }
+    
+    /**
+     * Moves a booking to new dates if the vehicle is still free for them. The
+     * check and the update are made under the same per-vehicle lock as
+     * {@link #createBooking(Booking)}, so they cannot race a new booking.
+     * 
+     * @param booking the booking to update, with its new dates set
+     * @return true if successful, false if the dates are taken or the update failed
+     */
+    public boolean rescheduleBooking(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getId().isEmpty() || booking.getVehicleId() == null) {
+            return false;
+        }
+        return TRANSACTIONS.reschedule(booking, this);
     }
     
     /**
@@ -125,18 +224,54 @@ public class BookingDAO {
             return false;
         }
         
-        List<Booking> bookings = getAllBookings();
-        boolean removed = bookings.removeIf(b -> b.getId().equals(id));
+        RequestIdentityMap.invalidate(BOOKINGS_FILE);
         
-        if (!removed) {
-            return false;
+        boolean removed = LOG_STRUCTURED
+                ? STORE.removeJournaled(id, JOURNAL::appendTombstone)
+                : STORE.remove(id, BookingDAO::writeBookings);
+        if (removed) {
+            DashboardStatistics.getInstance().bookingRemoved(id);
         }
-        
+        return removed;
+    }
+    
+    /**
+     * Reads the bookings, folding the log over the snapshot in log-structured mode.
+     */
+    private static List<Booking> readBookings() {
+        try {
+            if (LOG_STRUCTURED) {
+                return JOURNAL.load();
+            }
+            
+            List<Booking> bookings = new ArrayList<>();
+            RecordCodec record = new RecordCodec();
+            
+            FileUtil.readEachLine(BOOKINGS_FILE, line -> {
+                try {
+                    bookings.add(Booking.fromRecord(record.reset(line, RecordCodec.COMMA)));
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error parsing booking line: " + line, e);
+                }
+            });
+            
+            return bookings;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading bookings", e);
+        }
+    }
+    
+    /**
+     * Rewrites the whole bookings file (used when log-structured mode is off).
+     */
+    private static void writeBookings(Collection<Booking> bookings) throws IOException {
         List<String> lines = bookings.stream()
                 .map(Booking::toString)
                 .collect(Collectors.toList());
         
-        return FileUtil.writeAllLines(BOOKINGS_FILE, lines);
+        if (!FileUtil.writeAllLines(BOOKINGS_FILE, lines)) {
+            throw new IOException("Failed to write bookings file");
+        }
     }
     
     /**
@@ -146,11 +281,7 @@ public class BookingDAO {
      * @return a list of bookings for the user
      */
     public List<Booking> getBookingsByUser(String userId) {
-        List<Booking> bookings = getAllBookings();
-        
-        return bookings.stream()
-                .filter(b -> b.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        return STORE.findByUser(userId);
     }
     
     /**
@@ -160,11 +291,7 @@ public class BookingDAO {
      * @return a list of bookings for the vehicle
      */
     public List<Booking> getBookingsByVehicle(String vehicleId) {
-        List<Booking> bookings = getAllBookings();
-        
-        return bookings.stream()
-                .filter(b -> b.getVehicleId().equals(vehicleId))
-                .collect(Collectors.toList());
+        return STORE.findByVehicle(vehicleId);
     }
     
     /**
@@ -174,11 +301,7 @@ public class BookingDAO {
      * @return a list of bookings with the specified status
      */
     public List<Booking> getBookingsByStatus(String status) {
-        List<Booking> bookings = getAllBookings();
-        
-        return bookings.stream()
-                .filter(b -> b.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+        return STORE.findByStatus(status);
     }
     
     /**
@@ -191,26 +314,19 @@ public class BookingDAO {
      * @return true if the vehicle is available, false otherwise
      */
     public boolean isVehicleAvailable(String vehicleId, LocalDate startDate, LocalDate endDate, String excludeBookingId) {
-        List<Booking> vehicleBookings = getBookingsByVehicle(vehicleId);
-        
-        for (Booking booking : vehicleBookings) {
-            // Skip the booking being updated
-            if (excludeBookingId != null && booking.getId().equals(excludeBookingId)) {
-                continue;
-            }
-            
-            // Skip cancelled bookings
-            if (booking.getStatus().equalsIgnoreCase("CANCELLED")) {
-                continue;
-            }
-            
-            // Check for overlap
-            if (!(endDate.isBefore(booking.getStartDate()) || startDate.isAfter(booking.getEndDate()))) {
-                return false;
-            }
-        }
-        
-        return true;
+        return STORE.isVehicleAvailable(vehicleId, startDate, endDate, excludeBookingId);
+    }
+    
+    /**
+     * Finds which of the given vehicles are free for a whole date range.
+     * 
+     * @param vehicleIds the IDs of the vehicles to check
+     * @param startDate the start date of the period to check
+     * @param endDate the end date of the period to check
+     * @return the IDs of the vehicles with no overlapping booking, in the order given
+     */
+    public List<String> getFreeVehicleIds(Collection<String> vehicleIds, LocalDate startDate, LocalDate endDate) {
+        return STORE.findFreeVehicles(vehicleIds, startDate, endDate);
     }
     
     /**
@@ -255,11 +371,6 @@ public class BookingDAO {
      * @return a list of active bookings
      */
     public List<Booking> getActiveBookings() {
-        List<Booking> bookings = getAllBookings();
-        
-        return bookings.stream()
-                .filter(b -> !b.getStatus().equalsIgnoreCase("CANCELLED") && 
-                             !b.getStatus().equalsIgnoreCase("COMPLETED"))
-                .collect(Collectors.toList());
+        return STORE.findActive();
     }
 }
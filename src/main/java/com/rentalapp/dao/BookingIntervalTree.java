@@ -0,0 +1,213 @@
+package com.rentalapp.dao;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Augmented interval tree of the booked date ranges of one vehicle.
+ * <p>
+ * Implemented as a treap ordered by (start day, booking id) where every node
+ * also records the latest end day in its subtree. That lets an overlap query
+ * skip any subtree that ends before the requested range, so a check costs
+ * O(log n) expected time. Days are epoch days and both ends are inclusive.
+ */
+class BookingIntervalTree {
+
+    /**
+     * Receives the date range of a stored booking
+     */
+    interface RangeVisitor {
+        void visit(long start, long end);
+    }
+
+    private static final class Node {
+        final long start;
+        final long end;
+        final String bookingId;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(long start, long end, String bookingId) {
+            this.start = start;
+            this.end = end;
+            this.bookingId = bookingId;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    /**
+     * Add the date range of a booking
+     */
+    void insert(long start, long end, String bookingId) {
+        root = insert(root, new Node(start, end, bookingId));
+        size++;
+    }
+
+    /**
+     * Remove the date range of a booking
+     *
+     * @return true if it was present
+     */
+    boolean remove(long start, String bookingId) {
+        int before = size;
+        root = remove(root, start, bookingId);
+        return size < before;
+    }
+
+    /**
+     * Check if any stored range other than the excluded booking overlaps [start, end]
+     */
+    boolean overlaps(long start, long end, String excludeBookingId) {
+        return overlaps(root, start, end, excludeBookingId);
+    }
+
+    /**
+     * Visit every stored range that overlaps [start, end]
+     */
+    void forEachOverlap(long start, long end, RangeVisitor visitor) {
+        forEachOverlap(root, start, end, visitor);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static boolean overlaps(Node node, long start, long end, String excludeBookingId) {
+        // Nothing in this subtree ends on or after the requested start
+        if (node == null || node.maxEnd < start) {
+            return false;
+        }
+
+        if (overlaps(node.left, start, end, excludeBookingId)) {
+            return true;
+        }
+
+        // Everything to the right starts after this node, so after the range too
+        if (node.start > end) {
+            return false;
+        }
+
+        if (node.end >= start && !node.bookingId.equals(excludeBookingId)) {
+            return true;
+        }
+
+        return overlaps(node.right, start, end, excludeBookingId);
+    }
+
+    private static void forEachOverlap(Node node, long start, long end, RangeVisitor visitor) {
+        if (node == null || node.maxEnd < start) {
+            return;
+        }
+
+        forEachOverlap(node.left, start, end, visitor);
+        if (node.start > end) {
+            return;
+        }
+        if (node.end >= start) {
+            visitor.visit(node.start, node.end);
+        }
+        forEachOverlap(node.right, start, end, visitor);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+
+        if (compare(added.start, added.bookingId, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+
+        update(node);
+        return node;
+    }
+
+    private Node remove(Node node, long start, String bookingId) {
+        if (node == null) {
+            return null;
+        }
+
+        int cmp = compare(start, bookingId, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, start, bookingId);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, start, bookingId);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd > maxEnd) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int compare(long start, String bookingId, Node node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : bookingId.compareTo(node.bookingId);
+    }
+}
@@ -0,0 +1,195 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Booking;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of booking mutations layered over the bookings.txt snapshot.
+ * <p>
+ * Each update is appended as {@code U,<booking line>} and each delete as
+ * {@code D,<id>}, so a write costs one small append regardless of how many
+ * bookings exist. Readers fold the log over the snapshot. A background task
+ * periodically writes a fresh snapshot and truncates the log. Replaying the
+ * log is idempotent, so a crash between the two steps loses nothing.
+ */
+class BookingJournal {
+    private static final Logger LOGGER = Logger.getLogger(BookingJournal.class.getName());
+    
+    private static final String UPDATE = "U,";
+    private static final String TOMBSTONE = "D,";
+    
+    private final String snapshotFile;
+    private final String logFile;
+    private final AtomicInteger pending = new AtomicInteger();
+    private ScheduledExecutorService compactor;
+    
+    BookingJournal(String snapshotFile, String logFile) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = logFile;
+    }
+    
+    /**
+     * Loads the snapshot and folds every logged mutation over it.
+     * 
+     * @return the current bookings in snapshot order
+     * @throws IOException if the snapshot or the log could not be read
+     */
+    List<Booking> load() throws IOException {
+        Map<String, Booking> bookings = new LinkedHashMap<>();
+        RecordCodec record = new RecordCodec();
+        
+        FileUtil.readEachLine(snapshotFile, line -> {
+            Booking booking = parse(line, 0, record);
+            if (booking != null) {
+                bookings.put(booking.getId(), booking);
+            }
+        });
+        
+        int[] entries = {0};
+        FileUtil.readEachLine(logFile, line -> {
+            if (startsWith(line, UPDATE)) {
+                Booking booking = parse(line, UPDATE.length(), record);
+                if (booking != null) {
+                    bookings.put(booking.getId(), booking);
+                    entries[0]++;
+                }
+            } else if (startsWith(line, TOMBSTONE)) {
+                bookings.remove(line.subSequence(TOMBSTONE.length(), line.length()).toString().trim());
+                entries[0]++;
+            } else {
+                LOGGER.warning("Skipping unrecognised booking log entry: " + line);
+            }
+        });
+        pending.set(entries[0]);
+        
+        return new ArrayList<>(bookings.values());
+    }
+    
+    /**
+     * Appends an update record for a booking.
+     */
+    void appendUpdate(Booking booking) throws IOException {
+        append(UPDATE + booking.toString());
+    }
+    
+    /**
+     * Appends a tombstone record for a booking.
+     */
+    void appendTombstone(Booking booking) throws IOException {
+        append(TOMBSTONE + booking.getId());
+    }
+    
+    /**
+     * Gets the number of log records written since the last compaction.
+     */
+    int getPendingEntries() {
+        return pending.get();
+    }
+    
+    /**
+     * Writes a fresh snapshot from the store and truncates the log.
+     * Does nothing if the log is empty.
+     */
+    void compact(BookingStore store) {
+        if (pending.get() == 0) {
+            return;
+        }
+        
+        try {
+            store.snapshot(this::writeSnapshot);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Booking log compaction failed", e);
+        }
+    }
+    
+    /**
+     * Starts compacting the log in the background at a fixed interval.
+     */
+    synchronized void startCompaction(BookingStore store, long periodSeconds) {
+        if (compactor != null) {
+            return;
+        }
+        
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "booking-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> compact(store), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Stops background compaction and runs one final compaction.
+     */
+    synchronized void stopCompaction(BookingStore store) {
+        if (compactor == null) {
+            return;
+        }
+        
+        compactor.shutdownNow();
+        compactor = null;
+        compact(store);
+    }
+    
+    /**
+     * Runs under the store's write lock, so no mutation can slip in between the two writes.
+     */
+    private void writeSnapshot(Collection<Booking> bookings) throws IOException {
+        List<String> lines = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            lines.add(booking.toString());
+        }
+        
+        if (!FileUtil.writeAllLines(snapshotFile, lines)) {
+            throw new IOException("Failed to write booking snapshot");
+        }
+        if (!FileUtil.writeAllLines(logFile, Collections.emptyList())) {
+            throw new IOException("Failed to truncate booking log");
+        }
+        
+        LOGGER.info("Compacted booking log: " + pending.getAndSet(0) + " entries folded into " + bookings.size() + " bookings");
+    }
+    
+    private void append(String line) throws IOException {
+        if (!FileUtil.appendLine(logFile, line)) {
+            throw new IOException("Failed to append to " + logFile);
+        }
+        pending.incrementAndGet();
+    }
+    
+    private static boolean startsWith(CharSequence line, String prefix) {
+        if (line.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private Booking parse(CharSequence line, int from, RecordCodec record) {
+        try {
+            return Booking.fromRecord(record.reset(line, from, RecordCodec.COMMA));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error parsing booking line: " + line, e);
+            return null;
+        }
+    }
+}
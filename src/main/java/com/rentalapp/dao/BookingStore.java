@@ -0,0 +1,239 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Booking;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Shared in-memory copy of the bookings (snapshot plus journal), indexed by booking id,
+ * by user, vehicle and status, and by the date ranges each vehicle is booked for
+ */
+class BookingStore extends EntityStore<Booking> {
+
+    private final Supplier<List<Booking>> loader;
+
+    // Non-cancelled bookings per vehicle
+    private final Map<String, BookingIntervalTree> intervalsByVehicle = new HashMap<>();
+    
+    // Booked epoch days per vehicle, derived from the interval trees
+    private final Map<String, DayBitmap> bookedDaysByVehicle = new HashMap<>();
+
+    // Booking IDs per user, vehicle and (upper-case) status, in the order they were indexed
+    private final KeyIndex idsByUser = new KeyIndex();
+    private final KeyIndex idsByVehicle = new KeyIndex();
+    private final KeyIndex idsByStatus = new KeyIndex();
+    
+    // Bookings that are neither cancelled nor completed
+    private final Set<String> activeIds = new LinkedHashSet<>();
+
+    BookingStore(Supplier<List<Booking>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Check that no non-cancelled booking other than the excluded one overlaps the date range
+     */
+    boolean isVehicleAvailable(String vehicleId, LocalDate startDate, LocalDate endDate, String excludeBookingId) {
+        return read(() -> {
+            BookingIntervalTree intervals = intervalsByVehicle.get(vehicleId);
+            return intervals == null
+                    || !intervals.overlaps(startDate.toEpochDay(), endDate.toEpochDay(), excludeBookingId);
+        });
+    }
+
+    /**
+     * Find which of the given vehicles have no non-cancelled booking in the date range
+     *
+     * @return the free vehicle IDs, in the order given
+     */
+    List<String> findFreeVehicles(Collection<String> vehicleIds, LocalDate startDate, LocalDate endDate) {
+        long fromDay = startDate.toEpochDay();
+        long[] query = DayBitmap.rangeMask(fromDay, endDate.toEpochDay());
+        long queryFirstWord = fromDay >> 6;
+
+        return read(() -> {
+            List<String> free = new ArrayList<>();
+            for (String vehicleId : vehicleIds) {
+                DayBitmap bookedDays = bookedDaysByVehicle.get(vehicleId);
+                if (bookedDays == null || !bookedDays.intersects(query, queryFirstWord)) {
+                    free.add(vehicleId);
+                }
+            }
+            return free;
+        });
+    }
+
+    /**
+     * Get copies of the bookings of a user
+     */
+    List<Booking> findByUser(String userId) {
+        return read(() -> copiesOf(idsByUser.get(userId)));
+    }
+
+    /**
+     * Get copies of the bookings of a vehicle
+     */
+    List<Booking> findByVehicle(String vehicleId) {
+        return read(() -> copiesOf(idsByVehicle.get(vehicleId)));
+    }
+
+    /**
+     * Get copies of the bookings with a status (case-insensitive)
+     */
+    List<Booking> findByStatus(String status) {
+        if (status == null) {
+            return new ArrayList<>();
+        }
+        return read(() -> copiesOf(idsByStatus.get(status.toUpperCase(Locale.ROOT))));
+    }
+
+    /**
+     * Get copies of the bookings that are neither cancelled nor completed
+     */
+    List<Booking> findActive() {
+        return read(() -> copiesOf(activeIds));
+    }
+
+    @Override
+    protected List<Booking> loadAll() {
+        return loader.get();
+    }
+
+    @Override
+    protected String idOf(Booking booking) {
+        return booking.getId();
+    }
+
+    @Override
+    protected Booking copyOf(Booking booking) {
+        return new Booking(booking);
+    }
+
+    @Override
+    protected long versionOf(Booking booking) {
+        return booking.getVersion();
+    }
+
+    @Override
+    protected void setVersion(Booking booking, long version) {
+        booking.setVersion(version);
+    }
+
+    @Override
+    protected void indexAdded(Booking booking) {
+        addKeys(booking);
+        addInterval(booking);
+    }
+
+    @Override
+    protected void indexRemoved(Booking booking) {
+        removeKeys(booking);
+        removeInterval(booking);
+    }
+
+    @Override
+    protected void indexReplaced(Booking previous, Booking current) {
+        // Only move the secondary keys that changed, so unchanged ones keep their order
+        idsByUser.move(previous.getUserId(), current.getUserId(), current.getId());
+        idsByVehicle.move(previous.getVehicleId(), current.getVehicleId(), current.getId());
+        idsByStatus.move(statusKey(previous), statusKey(current), current.getId());
+        if (isActive(previous) != isActive(current)) {
+            if (isActive(current)) {
+                activeIds.add(current.getId());
+            } else {
+                activeIds.remove(current.getId());
+            }
+        }
+
+        removeInterval(previous);
+        addInterval(current);
+    }
+
+    @Override
+    protected void indexCleared() {
+        intervalsByVehicle.clear();
+        bookedDaysByVehicle.clear();
+        idsByUser.clear();
+        idsByVehicle.clear();
+        idsByStatus.clear();
+        activeIds.clear();
+    }
+
+    private void addKeys(Booking booking) {
+        idsByUser.add(booking.getUserId(), booking.getId());
+        idsByVehicle.add(booking.getVehicleId(), booking.getId());
+        idsByStatus.add(statusKey(booking), booking.getId());
+        if (isActive(booking)) {
+            activeIds.add(booking.getId());
+        }
+    }
+
+    private void removeKeys(Booking booking) {
+        idsByUser.remove(booking.getUserId(), booking.getId());
+        idsByVehicle.remove(booking.getVehicleId(), booking.getId());
+        idsByStatus.remove(statusKey(booking), booking.getId());
+        activeIds.remove(booking.getId());
+    }
+
+    private void addInterval(Booking booking) {
+        if (isBlocking(booking)) {
+            long start = booking.getStartDate().toEpochDay();
+            long end = booking.getEndDate().toEpochDay();
+            intervalsByVehicle.computeIfAbsent(booking.getVehicleId(), k -> new BookingIntervalTree())
+                    .insert(start, end, booking.getId());
+            bookedDaysByVehicle.computeIfAbsent(booking.getVehicleId(), k -> new DayBitmap())
+                    .set(start, end);
+        }
+    }
+
+    private void removeInterval(Booking booking) {
+        if (isBlocking(booking)) {
+            BookingIntervalTree intervals = intervalsByVehicle.get(booking.getVehicleId());
+            if (intervals != null) {
+                long start = booking.getStartDate().toEpochDay();
+                long end = booking.getEndDate().toEpochDay();
+                intervals.remove(start, booking.getId());
+                
+                // Free the days, then re-mark any that another booking still overlaps
+                DayBitmap bookedDays = bookedDaysByVehicle.get(booking.getVehicleId());
+                bookedDays.clear(start, end);
+                intervals.forEachOverlap(start, end, (s, e) -> bookedDays.set(Math.max(s, start), Math.min(e, end)));
+                
+                if (intervals.isEmpty()) {
+                    intervalsByVehicle.remove(booking.getVehicleId());
+                    bookedDaysByVehicle.remove(booking.getVehicleId());
+                }
+            }
+        }
+    }
+
+    private static String statusKey(Booking booking) {
+        return booking.getStatus() != null ? booking.getStatus().toUpperCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Active means neither cancelled nor completed
+     */
+    private static boolean isActive(Booking booking) {
+        String status = statusKey(booking);
+        return status != null && !"CANCELLED".equals(status) && !"COMPLETED".equals(status);
+    }
+
+    /**
+     * Cancelled bookings do not hold the vehicle
+     */
+    private static boolean isBlocking(Booking booking) {
+        return booking.getVehicleId() != null
+                && booking.getStartDate() != null && booking.getEndDate() != null
+                && !"CANCELLED".equalsIgnoreCase(booking.getStatus());
+    }
+}
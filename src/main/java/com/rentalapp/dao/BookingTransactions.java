@@ -0,0 +1,176 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Booking;
+import com.rentalapp.model.Vehicle;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates a booking and marks its vehicle as rented as one transaction.
+ * <p>
+ * Transactions on the same vehicle run one at a time under that vehicle's
+ * lock stripe, so the availability check and the insert cannot interleave
+ * with another booking of the same car; bookings of different cars only wait
+ * for each other when their IDs share a stripe. Before touching bookings.txt
+ * or vehicles.txt an intent record {@code B,<tx>,<booking>,<vehicle>} is
+ * appended (and forced to disk with the group commit), and {@code C,<tx>} or
+ * {@code A,<tx>} once the transaction has committed or been abandoned. The
+ * booking is always written first, so at startup an intent without an
+ * outcome is finished if its booking made it to disk and dropped otherwise.
+ */
+class BookingTransactions {
+    private static final Logger LOGGER = Logger.getLogger(BookingTransactions.class.getName());
+
+    private static final String BEGIN = "B";
+    private static final String COMMIT = "C";
+    private static final String ABORT = "A";
+    
+    private static final int MARK_RENTED_ATTEMPTS = 3;
+
+    private final String intentFile;
+    private final StripedLocks vehicleLocks;
+
+    BookingTransactions(String intentFile, int lockStripes) {
+        this.intentFile = intentFile;
+        this.vehicleLocks = new StripedLocks(lockStripes);
+    }
+
+    /**
+     * Checks the vehicle is free for the booking's dates, adds the booking and
+     * marks the vehicle as rented.
+     */
+    BookingDAO.CreateResult create(Booking booking, BookingDAO bookingDAO, VehicleDAO vehicleDAO) {
+        ReentrantLock lock = vehicleLocks.get(booking.getVehicleId());
+        lock.lock();
+        try {
+            if (!bookingDAO.isVehicleAvailable(booking.getVehicleId(), booking.getStartDate(), booking.getEndDate(), null)) {
+                return BookingDAO.CreateResult.UNAVAILABLE;
+            }
+
+            String tx = FileUtil.generateUniqueId();
+            if (!log(String.join(",", BEGIN, tx, booking.getId(), booking.getVehicleId()))) {
+                return BookingDAO.CreateResult.FAILED;
+            }
+
+            if (!bookingDAO.addBooking(booking)) {
+                log(String.join(",", ABORT, tx));
+                return BookingDAO.CreateResult.FAILED;
+            }
+
+            // A crash from here on is finished by recovery, so the booking stands either way;
+            // if the vehicle cannot be written now the intent stays open for recovery too
+            if (markRented(booking.getVehicleId(), vehicleDAO)) {
+                log(String.join(",", COMMIT, tx));
+            } else {
+                LOGGER.warning("Vehicle " + booking.getVehicleId() + " not marked as rented; left to recovery");
+            }
+            return BookingDAO.CreateResult.CREATED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks the vehicle is still free for the booking's new dates, leaving out
+     * the booking itself, and saves the booking if nobody else has updated it
+     * since it was read.
+     *
+     * @return false if the dates clash with another booking, the booking has
+     *         changed meanwhile or the write failed
+     */
+    boolean reschedule(Booking booking, BookingDAO bookingDAO) {
+        ReentrantLock lock = vehicleLocks.get(booking.getVehicleId());
+        lock.lock();
+        try {
+            return bookingDAO.isVehicleAvailable(booking.getVehicleId(), booking.getStartDate(),
+                    booking.getEndDate(), booking.getId())
+                    && bookingDAO.updateBookingIfUnchanged(booking) == UpdateResult.UPDATED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finishes or drops every transaction left open by a crash, then clears
+     * the resolved ones from the intent log. Runs at startup, before any
+     * booking is created.
+     */
+    void recover(BookingDAO bookingDAO, VehicleDAO vehicleDAO) {
+        Map<String, String[]> open = new LinkedHashMap<>();
+        RecordCodec record = new RecordCodec();
+
+        FileUtil.forEachLine(intentFile, line -> {
+            record.reset(line, RecordCodec.COMMA);
+            String type = record.getString(0);
+            if (BEGIN.equals(type) && record.fieldCount() >= 4) {
+                open.put(record.getString(1), new String[] {record.getString(2), record.getString(3)});
+            } else if ((COMMIT.equals(type) || ABORT.equals(type)) && record.fieldCount() >= 2) {
+                open.remove(record.getString(1));
+            } else {
+                LOGGER.warning("Skipping unrecognised booking intent: " + line);
+            }
+        });
+
+        // Intents that still cannot be finished are kept for the next start
+        List<String> unresolved = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry : open.entrySet()) {
+            String bookingId = entry.getValue()[0];
+            String vehicleId = entry.getValue()[1];
+            if (bookingDAO.getBookingById(bookingId) == null) {
+                LOGGER.info("Dropped interrupted booking transaction " + entry.getKey());
+            } else if (markRented(vehicleId, vehicleDAO)) {
+                LOGGER.info("Completed interrupted booking transaction " + entry.getKey());
+            } else {
+                unresolved.add(String.join(",", BEGIN, entry.getKey(), bookingId, vehicleId));
+            }
+        }
+
+        if (!FileUtil.writeAllLines(intentFile, unresolved)) {
+            LOGGER.warning("Failed to rewrite booking intent log");
+        }
+    }
+
+    /**
+     * Marks the vehicle as rented without overwriting changes made to it
+     * meanwhile, such as an admin's edit. The vehicle is read from the store
+     * rather than the request's identity map, whose copy may predate the lock.
+     *
+     * @return true if the vehicle is now rented or no longer exists
+     */
+    private boolean markRented(String vehicleId, VehicleDAO vehicleDAO) {
+        for (int attempt = 0; attempt < MARK_RENTED_ATTEMPTS; attempt++) {
+            Vehicle vehicle = vehicleDAO.getStoredVehicle(vehicleId);
+            if (vehicle == null || !vehicle.isAvailable()) {
+                return true;
+            }
+            vehicle.setAvailable(false);
+            
+            UpdateResult result = vehicleDAO.updateVehicleIfUnchanged(vehicle);
+            if (result == UpdateResult.UPDATED || result == UpdateResult.NOT_FOUND) {
+                return true;
+            }
+            if (result != UpdateResult.CONFLICT) {
+                return false;
+            }
+        }
+        LOGGER.warning("Vehicle " + vehicleId + " not marked as rented: it kept changing concurrently");
+        return false;
+    }
+
+    private boolean log(String line) {
+        try {
+            return FileUtil.appendLineAsync(intentFile, line).join();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write booking intent", e);
+            return false;
+        }
+    }
+}
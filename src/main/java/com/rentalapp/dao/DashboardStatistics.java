@@ -0,0 +1,279 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Booking;
+import com.rentalapp.model.Review;
+import com.rentalapp.model.User;
+import com.rentalapp.model.Vehicle;
+import com.rentalapp.util.ParallelLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Running totals and most-recent lists for the admin dashboard.
+ * <p>
+ * Seeded once from the data files at startup, then kept current by the DAOs,
+ * which report every successful add, update and delete. Reading the dashboard
+ * therefore costs the same however many records the files hold. The only
+ * exception is deleting one of the records currently shown as recent: its
+ * list is then rebuilt from the DAO on the next read.
+ */
+public final class DashboardStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStatistics.class);
+
+    /** Number of recent bookings and reviews kept */
+    public static final int RECENT_LIMIT = 5;
+
+    private static final DashboardStatistics INSTANCE = new DashboardStatistics();
+
+    private boolean seeded;
+    private int vehicleCount;
+    private int bookingCount;
+    private int userCount;
+    private int reviewCount;
+
+    private final RecentRing<Booking> recentBookings = new RecentRing<>(RECENT_LIMIT, Booking::getId);
+    private final RecentRing<Review> recentReviews = new RecentRing<>(RECENT_LIMIT, Review::getId);
+    private boolean recentBookingsStale;
+    private boolean recentReviewsStale;
+
+    private DashboardStatistics() {
+    }
+
+    /**
+     * Get the shared statistics. Changes reported before the first seed are
+     * ignored, since seeding reads them from the files anyway.
+     */
+    public static DashboardStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load the totals and recent lists from the data files
+     */
+    public synchronized void seed() {
+        long start = System.currentTimeMillis();
+
+        // The five files are independent, so load them side by side
+        CompletableFuture<List<Vehicle>> vehicles = ParallelLoader.load("vehicles", () -> new VehicleDAO().getAllVehicles());
+        CompletableFuture<List<User>> users = ParallelLoader.load("users", () -> new UserDAO().getAllUsers());
+        CompletableFuture<List<Booking>> bookings = ParallelLoader.load("bookings", () -> new BookingDAO().getAllBookings());
+        CompletableFuture<List<Review>> reviews = ParallelLoader.load("reviews", () -> new ReviewDAO().getAllReviews());
+        CompletableFuture<Integer> payments = ParallelLoader.load("payments", () -> new PaymentDAO().getAllPayments().size());
+
+        vehicleCount = ParallelLoader.join(vehicles).size();
+        userCount = ParallelLoader.join(users).size();
+
+        List<Booking> allBookings = ParallelLoader.join(bookings);
+        bookingCount = allBookings.size();
+        recentBookings.fill(allBookings);
+        recentBookingsStale = false;
+
+        List<Review> allReviews = ParallelLoader.join(reviews);
+        reviewCount = allReviews.size();
+        recentReviews.fill(allReviews);
+        recentReviewsStale = false;
+
+        // Payments keep their own per-status counts; loading them here just warms the store
+        ParallelLoader.join(payments);
+
+        seeded = true;
+        logger.info("Seeded dashboard statistics in {} ms", System.currentTimeMillis() - start);
+    }
+
+    public synchronized int getVehicleCount() {
+        ensureSeeded();
+        return vehicleCount;
+    }
+
+    public synchronized int getBookingCount() {
+        ensureSeeded();
+        return bookingCount;
+    }
+
+    public synchronized int getUserCount() {
+        ensureSeeded();
+        return userCount;
+    }
+
+    public synchronized int getReviewCount() {
+        ensureSeeded();
+        return reviewCount;
+    }
+
+    public int getPendingPaymentCount() {
+        return new PaymentDAO().countPaymentsByStatus("PENDING");
+    }
+
+    /**
+     * Get copies of the most recently added bookings, newest first
+     */
+    public synchronized List<Booking> getRecentBookings() {
+        ensureSeeded();
+        if (recentBookingsStale) {
+            recentBookings.fill(new BookingDAO().getAllBookings());
+            recentBookingsStale = false;
+        }
+        List<Booking> result = new ArrayList<>();
+        for (Booking booking : recentBookings.newestFirst()) {
+            result.add(new Booking(booking));
+        }
+        return result;
+    }
+
+    /**
+     * Get copies of the most recently added reviews, newest first
+     */
+    public synchronized List<Review> getRecentReviews() {
+        ensureSeeded();
+        if (recentReviewsStale) {
+            recentReviews.fill(new ReviewDAO().getAllReviews());
+            recentReviewsStale = false;
+        }
+        List<Review> result = new ArrayList<>();
+        for (Review review : recentReviews.newestFirst()) {
+            result.add(new Review(review));
+        }
+        return result;
+    }
+
+    synchronized void vehicleAdded() {
+        if (seeded) {
+            vehicleCount++;
+        }
+    }
+
+    synchronized void vehicleRemoved() {
+        if (seeded) {
+            vehicleCount--;
+        }
+    }
+
+    synchronized void userAdded() {
+        if (seeded) {
+            userCount++;
+        }
+    }
+
+    synchronized void userRemoved() {
+        if (seeded) {
+            userCount--;
+        }
+    }
+
+    synchronized void bookingAdded(Booking booking) {
+        if (seeded) {
+            bookingCount++;
+            recentBookings.push(new Booking(booking));
+        }
+    }
+
+    synchronized void bookingUpdated(Booking booking) {
+        if (seeded) {
+            recentBookings.replace(new Booking(booking));
+        }
+    }
+
+    synchronized void bookingRemoved(String bookingId) {
+        if (seeded) {
+            bookingCount--;
+            recentBookingsStale |= recentBookings.contains(bookingId);
+        }
+    }
+
+    synchronized void reviewAdded(Review review) {
+        if (seeded) {
+            reviewCount++;
+            recentReviews.push(new Review(review));
+        }
+    }
+
+    synchronized void reviewUpdated(Review review) {
+        if (seeded) {
+            recentReviews.replace(new Review(review));
+        }
+    }
+
+    synchronized void reviewRemoved(String reviewId) {
+        if (seeded) {
+            reviewCount--;
+            recentReviewsStale |= recentReviews.contains(reviewId);
+        }
+    }
+
+    private void ensureSeeded() {
+        if (!seeded) {
+            seed();
+        }
+    }
+
+    /**
+     * Fixed-size ring of the last items pushed
+     */
+    private static final class RecentRing<T> {
+        private final Object[] items;
+        private final Function<T, String> idOf;
+        private int next;
+        private int size;
+
+        RecentRing(int capacity, Function<T, String> idOf) {
+            this.items = new Object[capacity];
+            this.idOf = idOf;
+        }
+
+        void push(T item) {
+            items[next] = item;
+            next = (next + 1) % items.length;
+            if (size < items.length) {
+                size++;
+            }
+        }
+
+        /**
+         * Refill from a list in insertion order, keeping its tail
+         */
+        void fill(List<T> all) {
+            next = 0;
+            size = 0;
+            for (int i = Math.max(0, all.size() - items.length); i < all.size(); i++) {
+                push(all.get(i));
+            }
+        }
+
+        void replace(T item) {
+            String id = idOf.apply(item);
+            for (int i = 0; i < size; i++) {
+                if (id != null && id.equals(idOf.apply(get(i)))) {
+                    items[i] = item;
+                }
+            }
+        }
+
+        boolean contains(String id) {
+            for (int i = 0; i < size; i++) {
+                if (id != null && id.equals(idOf.apply(get(i)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<T> newestFirst() {
+            List<T> result = new ArrayList<>(size);
+            for (int k = 1; k <= size; k++) {
+                result.add(get((next - k + items.length) % items.length));
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T get(int slot) {
+            return (T) items[slot];
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.rentalapp.dao;
+
+/**
+ * How loading one data file went during the startup warm-up
+ */
+public class DataFileLoad {
+
+    private final String fileName;
+    private final int recordCount;
+    private final long loadMillis;
+    private final String error;
+
+    public DataFileLoad(String fileName, int recordCount, long loadMillis, String error) {
+        this.fileName = fileName;
+        this.recordCount = recordCount;
+        this.loadMillis = loadMillis;
+        this.error = error;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Time to parse the file and build its indexes
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * Why the file could not be loaded, or null if it was
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        return isFailed()
+                ? fileName + " failed after " + loadMillis + " ms: " + error
+                : fileName + " " + recordCount + " records in " + loadMillis + " ms";
+    }
+}
@@ -0,0 +1,152 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.util.ParallelLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Loads every data file into its store at startup, so the first requests
+ * after a deploy do not pay for parsing the files and building the indexes.
+ * <p>
+ * The six files are loaded side by side on the {@link ParallelLoader} pool,
+ * from a background thread so that startup is not held up. The dashboard
+ * counters and existence filters are built once they are in memory. Requests
+ * that arrive meanwhile are held by {@code WarmUpGateFilter} until the warm-up
+ * has finished, so no write can slip in between the counters being seeded and
+ * the DAOs reporting changes to them. The application reports itself ready
+ * when the warm-up is done.
+ */
+public final class DataWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataWarmUp.class);
+
+    /**
+     * Progress of the warm-up
+     */
+    public enum State {
+        NOT_STARTED,
+        LOADING,
+        /** Every file is loaded */
+        READY,
+        /** At least one file could not be loaded; see {@link #getLoads()} */
+        FAILED
+    }
+
+    private static volatile State state = State.NOT_STARTED;
+    private static volatile List<DataFileLoad> loads = Collections.emptyList();
+    private static volatile long totalMillis;
+    private static final CountDownLatch FINISHED = new CountDownLatch(1);
+
+    private DataWarmUp() {
+    }
+
+    /**
+     * Start warming up in the background. Later calls do nothing.
+     */
+    public static synchronized void start() {
+        if (state != State.NOT_STARTED) {
+            return;
+        }
+        state = State.LOADING;
+
+        Thread thread = new Thread(DataWarmUp::run, "data-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static State getState() {
+        return state;
+    }
+
+    public static boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * Wait until the warm-up has finished, whether or not it succeeded.
+     * Returns at once if it was never started.
+     *
+     * @return false if it was still running when the timeout ran out
+     */
+    public static boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return state == State.NOT_STARTED || FINISHED.await(timeout, unit);
+    }
+
+    /**
+     * Per-file results, in a fixed order; empty until the warm-up has finished
+     */
+    public static List<DataFileLoad> getLoads() {
+        return loads;
+    }
+
+    /**
+     * Wall-clock time of the whole warm-up, or 0 until it has finished
+     */
+    public static long getTotalMillis() {
+        return totalMillis;
+    }
+
+    private static void run() {
+        try {
+            warmUp();
+        } finally {
+            FINISHED.countDown();
+        }
+    }
+
+    private static void warmUp() {
+        long start = System.currentTimeMillis();
+
+        List<CompletableFuture<DataFileLoad>> pending = new ArrayList<>();
+        pending.add(load("vehicles.txt", VehicleDAO::warmUp));
+        pending.add(load("bookings.txt", BookingDAO::warmUp));
+        pending.add(load("users.txt", UserDAO::warmUp));
+        pending.add(load("reviews.txt", ReviewDAO::warmUp));
+        pending.add(load("payments.txt", PaymentDAO::warmUp));
+        pending.add(load("admins.txt", AdminDAO::warmUp));
+
+        List<DataFileLoad> results = new ArrayList<>(pending.size());
+        boolean failed = false;
+        for (CompletableFuture<DataFileLoad> future : pending) {
+            DataFileLoad result = future.join();
+            results.add(result);
+            failed |= result.isFailed();
+            logger.info("Warm-up: {}", result);
+        }
+
+        // Both read from the stores, which are all in memory by now
+        try {
+            DashboardStatistics.getInstance().seed();
+            ExistenceFilter.rebuildAll();
+        } catch (RuntimeException e) {
+            logger.error("Warm-up: failed to build the dashboard statistics and lookup filters", e);
+            failed = true;
+        }
+
+        loads = Collections.unmodifiableList(results);
+        totalMillis = System.currentTimeMillis() - start;
+        state = failed ? State.FAILED : State.READY;
+        logger.info("Warm-up finished in {} ms: {}", totalMillis, state);
+    }
+
+    private static CompletableFuture<DataFileLoad> load(String fileName, IntSupplier loader) {
+        return ParallelLoader.load("warm-up " + fileName, () -> {
+            long start = System.currentTimeMillis();
+            try {
+                int count = loader.getAsInt();
+                return new DataFileLoad(fileName, count, System.currentTimeMillis() - start, null);
+            } catch (RuntimeException e) {
+                logger.error("Warm-up: failed to load {}", fileName, e);
+                return new DataFileLoad(fileName, 0, System.currentTimeMillis() - start, e.toString());
+            }
+        });
+    }
+}
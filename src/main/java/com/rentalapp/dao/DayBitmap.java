@@ -0,0 +1,102 @@
+package com.rentalapp.dao;
+
+/**
+ * Compact set of booked epoch days for one vehicle.
+ * <p>
+ * Bit {@code d & 63} of word {@code d >> 6} stands for epoch day {@code d}.
+ * Word indexes are absolute, so every vehicle's bitmap lines up with the same
+ * query mask and a range check is a handful of word ANDs. The backing array
+ * only spans the words that have ever been set and grows in either direction.
+ */
+class DayBitmap {
+
+    private long firstWord;
+    private long[] words = new long[0];
+
+    /**
+     * Mark every day in [fromDay, toDay] as booked; an inverted range covers no days
+     */
+    void set(long fromDay, long toDay) {
+        if (toDay < fromDay) {
+            return;
+        }
+        ensureCapacity(fromDay >> 6, toDay >> 6);
+        for (long w = fromDay >> 6; w <= toDay >> 6; w++) {
+            words[(int) (w - firstWord)] |= mask(w, fromDay, toDay);
+        }
+    }
+
+    /**
+     * Mark every day in [fromDay, toDay] as free
+     */
+    void clear(long fromDay, long toDay) {
+        if (toDay < fromDay) {
+            return;
+        }
+        long from = Math.max(fromDay >> 6, firstWord);
+        long to = Math.min(toDay >> 6, firstWord + words.length - 1);
+        for (long w = from; w <= to; w++) {
+            words[(int) (w - firstWord)] &= ~mask(w, fromDay, toDay);
+        }
+    }
+
+    /**
+     * Check if any day covered by the query mask is booked
+     *
+     * @param query mask built by {@link #rangeMask(long, long)}
+     * @param queryFirstWord absolute index of the first word of the mask
+     */
+    boolean intersects(long[] query, long queryFirstWord) {
+        long from = Math.max(queryFirstWord, firstWord);
+        long to = Math.min(queryFirstWord + query.length, firstWord + words.length) - 1;
+        long hits = 0;
+        for (long w = from; w <= to; w++) {
+            hits |= words[(int) (w - firstWord)] & query[(int) (w - queryFirstWord)];
+        }
+        return hits != 0;
+    }
+
+    /**
+     * Build the word mask for [fromDay, toDay], starting at word {@code fromDay >> 6};
+     * empty for an inverted range
+     */
+    static long[] rangeMask(long fromDay, long toDay) {
+        if (toDay < fromDay) {
+            return new long[0];
+        }
+        long first = fromDay >> 6;
+        long[] mask = new long[(int) ((toDay >> 6) - first + 1)];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = mask(first + i, fromDay, toDay);
+        }
+        return mask;
+    }
+
+    private static long mask(long word, long fromDay, long toDay) {
+        long wordStart = word << 6;
+        int lo = (int) Math.max(fromDay - wordStart, 0);
+        int hi = (int) Math.min(toDay - wordStart, 63);
+        long upper = hi == 63 ? -1L : (1L << (hi + 1)) - 1;
+        return upper & (-1L << lo);
+    }
+
+    private void ensureCapacity(long fromWord, long toWord) {
+        if (words.length == 0) {
+            firstWord = fromWord;
+            words = new long[(int) (toWord - fromWord + 1)];
+            return;
+        }
+
+        long lastWord = firstWord + words.length - 1;
+        if (fromWord >= firstWord && toWord <= lastWord) {
+            return;
+        }
+
+        long newFirst = Math.min(fromWord, firstWord);
+        long newLast = Math.max(toWord, lastWord);
+        long[] grown = new long[(int) (newLast - newFirst + 1)];
+        System.arraycopy(words, 0, grown, (int) (firstWord - newFirst), words.length);
+        firstWord = newFirst;
+        words = grown;
+    }
+}
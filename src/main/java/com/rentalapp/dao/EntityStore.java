@@ -0,0 +1,601 @@
+package com.rentalapp.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Resident, thread-safe copy of one data file, indexed by record id.
+ * <p>
+ * The file is parsed once on first access. Afterwards every read is served from
+ * memory and every write goes through to the file before the in-memory copy is
+ * changed, so the two never disagree. Records are handed out as copies so that
+ * callers can mutate what they get back without touching the shared state.
+ */
+abstract class EntityStore<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityStore.class);
+
+    /**
+     * Persists the full set of records after a change (used for rewrites)
+     */
+    interface Rewriter<T> {
+        void write(Collection<T> records) throws IOException;
+    }
+
+    /**
+     * Persists a single new record (used for appends)
+     */
+    interface Appender<T> {
+        void write(T record) throws IOException;
+    }
+
+    /**
+     * Queues a single new record for appending and reports the outcome later
+     */
+    interface QueuedAppender<T> {
+        CompletableFuture<Boolean> enqueue(T record);
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, T> records = new LinkedHashMap<>();
+    // Records whose append has been queued but not yet published, by id
+    private final Map<String, T> pendingRecords = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> pendingAppends = new LinkedHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Parse every record from the backing file
+     */
+    protected abstract List<T> loadAll();
+
+    /**
+     * Get the primary key of a record
+     */
+    protected abstract String idOf(T record);
+
+    /**
+     * Create an independent copy of a record
+     */
+    protected abstract T copyOf(T record);
+
+    /**
+     * Called under the write lock after a record has been added
+     */
+    protected void indexAdded(T record) {
+    }
+
+    /**
+     * Called under the write lock after a record has been removed
+     */
+    protected void indexRemoved(T record) {
+    }
+
+    /**
+     * Called under the write lock after a record has been replaced by a new version
+     */
+    protected void indexReplaced(T previous, T current) {
+        indexRemoved(previous);
+        indexAdded(current);
+    }
+
+    /**
+     * Called under the write lock before the store is (re)populated
+     */
+    protected void indexCleared() {
+    }
+
+    /**
+     * Get the version of a record; stores whose records are not versioned
+     * keep the default, and every replace of them succeeds
+     */
+    protected long versionOf(T record) {
+        return 0;
+    }
+
+    /**
+     * Set the version of a record
+     */
+    protected void setVersion(T record, long version) {
+    }
+
+    /**
+     * Called under the write lock before a record is replaced, to carry over
+     * fields that are maintained separately and must not be overwritten with
+     * whatever the caller read earlier
+     */
+    protected void carryOver(T previous, T replacement) {
+    }
+
+    /**
+     * Get a copy of the record with the given id, or null
+     */
+    public T get(String id) {
+        if (id == null) {
+            return null;
+        }
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            T record = records.get(id);
+            return record != null ? copyOf(record) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a record with the given id exists
+     */
+    public boolean contains(String id) {
+        if (id == null) {
+            return false;
+        }
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return records.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get copies of all records in file order
+     */
+    public List<T> getAll() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(records.size());
+            for (T record : records.values()) {
+                result.add(copyOf(record));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get copies of the records with the given ids, resolved under one lock
+     *
+     * @return the records found, keyed by id; missing ids are left out
+     */
+    public Map<String, T> getByIds(Collection<String> ids) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Map<String, T> result = new LinkedHashMap<>();
+            for (String id : ids) {
+                if (id != null && !result.containsKey(id)) {
+                    T record = records.get(id);
+                    if (record != null) {
+                        result.put(id, copyOf(record));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of records currently held
+     */
+    public int size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return records.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append a new record to the file and the store
+     *
+     * @return false if a record with the same id exists or the write failed
+     */
+    public boolean add(T record, Appender<T> appender) {
+        ensureLoaded();
+        String id = idOf(record);
+        lock.writeLock().lock();
+        try {
+            if (records.containsKey(id)) {
+                return false;
+            }
+            appender.write(record);
+            T stored = copyOf(record);
+            records.put(id, stored);
+            indexAdded(stored);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error appending record {}", id, e);
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Append a new record through a queued appender, without holding the lock
+     * while the write is in flight. The id is reserved under the lock and the
+     * line is queued there, so the file order matches the order of calls, but
+     * concurrent callers wait for their writes together and can share a batch.
+     * The record becomes visible once its write has completed.
+     *
+     * @return false if a record with the same id exists or the write failed
+     */
+    public boolean addQueued(T record, QueuedAppender<T> appender) {
+        ensureLoaded();
+        String id = idOf(record);
+        T stored = copyOf(record);
+        CompletableFuture<Boolean> written;
+
+        lock.writeLock().lock();
+        try {
+            if (records.containsKey(id) || pendingAppends.containsKey(id)) {
+                return false;
+            }
+            written = appender.enqueue(stored);
+            pendingRecords.put(id, stored);
+            pendingAppends.put(id, written);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        boolean ok = written.join();
+        if (!ok) {
+            logger.error("Error appending record {}", id);
+        }
+
+        lock.writeLock().lock();
+        try {
+            // A rewrite may already have published it
+            if (pendingAppends.remove(id) != null) {
+                pendingRecords.remove(id);
+                if (ok) {
+                    records.put(id, stored);
+                    indexAdded(stored);
+                }
+            }
+            return ok;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace an existing record, whatever its version, and rewrite the file
+     *
+     * @return false if no such record exists or the write failed
+     */
+    public boolean replace(T record, Rewriter<T> rewriter) {
+        return replace(record, false, rewriter) == UpdateResult.UPDATED;
+    }
+
+    /**
+     * Replace an existing record only if it is still at the version the
+     * caller's copy has, and rewrite the file. On success both the stored
+     * record and the caller's copy move to the next version.
+     */
+    public UpdateResult replaceIfUnchanged(T record, Rewriter<T> rewriter) {
+        return replace(record, true, rewriter);
+    }
+
+    private UpdateResult replace(T record, boolean checkVersion, Rewriter<T> rewriter) {
+        ensureLoaded();
+        String id = idOf(record);
+        lock.writeLock().lock();
+        try {
+            T previous = records.get(id);
+            if (previous == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (checkVersion && versionOf(record) != versionOf(previous)) {
+                return UpdateResult.CONFLICT;
+            }
+            awaitPendingAppends();
+            T stored = nextVersion(previous, record);
+            records.put(id, stored);
+            try {
+                rewriter.write(Collections.unmodifiableCollection(records.values()));
+            } catch (IOException e) {
+                records.put(id, previous);
+                logger.error("Error rewriting record {}", id, e);
+                return UpdateResult.FAILED;
+            }
+            indexReplaced(previous, stored);
+            setVersion(record, versionOf(stored));
+            return UpdateResult.UPDATED;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Change several existing records and rewrite the file once for all of
+     * them. Each change is applied to a copy of the stored record, under the
+     * write lock, so it cannot overwrite a concurrent replace. Ids with no
+     * record are skipped. Versions are left alone, so this is meant for the
+     * fields a store carries over on replace.
+     *
+     * @return false if the write failed, in which case nothing is changed
+     */
+    public boolean updateAll(Collection<String> ids, Consumer<T> change, Rewriter<T> rewriter) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            Map<String, T> previous = new LinkedHashMap<>();
+            for (String id : ids) {
+                T record = records.get(id);
+                if (record != null && !previous.containsKey(id)) {
+                    previous.put(id, record);
+                }
+            }
+            if (previous.isEmpty()) {
+                return true;
+            }
+            awaitPendingAppends();
+            Map<String, T> updated = new LinkedHashMap<>();
+            for (Map.Entry<String, T> entry : previous.entrySet()) {
+                T stored = copyOf(entry.getValue());
+                change.accept(stored);
+                updated.put(entry.getKey(), stored);
+            }
+            records.putAll(updated);
+            try {
+                rewriter.write(Collections.unmodifiableCollection(records.values()));
+            } catch (IOException e) {
+                records.putAll(previous);
+                logger.error("Error rewriting {} records", updated.size(), e);
+                return false;
+            }
+            for (Map.Entry<String, T> entry : updated.entrySet()) {
+                indexReplaced(previous.get(entry.getKey()), entry.getValue());
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a record and rewrite the file
+     *
+     * @return false if no such record exists or the write failed
+     */
+    public boolean remove(String id, Rewriter<T> rewriter) {
+        if (id == null) {
+            return false;
+        }
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            if (!records.containsKey(id)) {
+                return false;
+            }
+            awaitPendingAppends();
+            Map<String, T> remaining = new LinkedHashMap<>(records);
+            T previous = remaining.remove(id);
+            try {
+                rewriter.write(Collections.unmodifiableCollection(remaining.values()));
+            } catch (IOException e) {
+                logger.error("Error removing record {}", id, e);
+                return false;
+            }
+            records.remove(id);
+            indexRemoved(previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace an existing record, whatever its version, persisting only the
+     * changed record (journal mode)
+     *
+     * @return false if no such record exists or the write failed
+     */
+    public boolean replaceJournaled(T record, Appender<T> journal) {
+        return replaceJournaled(record, false, journal) == UpdateResult.UPDATED;
+    }
+
+    /**
+     * Replace an existing record only if it is still at the version the
+     * caller's copy has, persisting only the changed record (journal mode)
+     */
+    public UpdateResult replaceJournaledIfUnchanged(T record, Appender<T> journal) {
+        return replaceJournaled(record, true, journal);
+    }
+
+    private UpdateResult replaceJournaled(T record, boolean checkVersion, Appender<T> journal) {
+        ensureLoaded();
+        String id = idOf(record);
+        lock.writeLock().lock();
+        try {
+            T previous = records.get(id);
+            if (previous == null) {
+                return UpdateResult.NOT_FOUND;
+            }
+            if (checkVersion && versionOf(record) != versionOf(previous)) {
+                return UpdateResult.CONFLICT;
+            }
+            T stored = nextVersion(previous, record);
+            journal.write(stored);
+            records.put(id, stored);
+            indexReplaced(previous, stored);
+            setVersion(record, versionOf(stored));
+            return UpdateResult.UPDATED;
+        } catch (IOException e) {
+            logger.error("Error journaling record {}", id, e);
+            return UpdateResult.FAILED;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The copy of a replacement that is stored, one version past the record it replaces
+     */
+    private T nextVersion(T previous, T record) {
+        T stored = copyOf(record);
+        carryOver(previous, stored);
+        setVersion(stored, versionOf(previous) + 1);
+        return stored;
+    }
+
+    /**
+     * Remove a record, persisting only a tombstone for it (journal mode)
+     *
+     * @return false if no such record exists or the write failed
+     */
+    public boolean removeJournaled(String id, Appender<T> journal) {
+        if (id == null) {
+            return false;
+        }
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            T previous = records.get(id);
+            if (previous == null) {
+                return false;
+            }
+            journal.write(previous);
+            records.remove(id);
+            indexRemoved(previous);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error journaling removal of record {}", id, e);
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the current records out while blocking all writers
+     */
+    public void snapshot(Rewriter<T> rewriter) throws IOException {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            awaitPendingAppends();
+            rewriter.write(Collections.unmodifiableCollection(records.values()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discard the in-memory copy and parse the file again
+     */
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            populate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Wait, under the write lock, for every queued append and publish the ones
+     * that were written. A rewrite that ran first would otherwise truncate the
+     * file without the queued records and lose them.
+     */
+    private void awaitPendingAppends() {
+        for (Map.Entry<String, CompletableFuture<Boolean>> entry : pendingAppends.entrySet()) {
+            if (entry.getValue().join()) {
+                T stored = pendingRecords.get(entry.getKey());
+                records.put(entry.getKey(), stored);
+                indexAdded(stored);
+            }
+        }
+        pendingAppends.clear();
+        pendingRecords.clear();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                populate();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void populate() {
+        records.clear();
+        indexCleared();
+        for (T record : loadAll()) {
+            T previous = records.put(idOf(record), record);
+            if (previous != null) {
+                indexRemoved(previous);
+            }
+            indexAdded(record);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Run a read-only action under the shared lock
+     */
+    protected <R> R read(Supplier<R> action) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy the stored records with the given ids, for subclasses holding the lock
+     */
+    protected List<T> copiesOf(Collection<String> ids) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T record = records.get(id);
+            if (record != null) {
+                result.add(copyOf(record));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Direct access to the stored record (no copy) for subclasses holding the lock
+     */
+    protected T peek(String id) {
+        return records.get(id);
+    }
+
+    /**
+     * Direct access to all stored records (no copy) for subclasses holding the lock
+     */
+    protected Collection<T> values() {
+        return records.values();
+    }
+}
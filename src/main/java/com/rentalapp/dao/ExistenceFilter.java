@@ -0,0 +1,142 @@
+package com.rentalapp.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fast path for "does this key exist?" checks that are almost always answered
+ * with no, such as whether a username is taken.
+ * <p>
+ * A Bloom filter of every existing key is built from the data file on first
+ * use and kept current as keys are added. A key the filter has never seen is
+ * answered without reading the file; only a possible hit falls back to the
+ * exact check. Keys are never taken out, so deletes and renames only make
+ * false positives (and so exact checks) a little more likely until the next
+ * rebuild. The filter is rebuilt twice as large once it holds more keys than
+ * it was sized for.
+ */
+public final class ExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    private static final List<ExistenceFilter> FILTERS = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final Supplier<Collection<String>> loader;
+    private BloomFilter filter; // guarded by this
+    private int capacity;       // guarded by this
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param name what the keys are, for the statistics
+     * @param loader reads every existing key from the data file
+     */
+    ExistenceFilter(String name, Supplier<Collection<String>> loader) {
+        this.name = name;
+        this.loader = loader;
+        FILTERS.add(this);
+    }
+
+    /**
+     * Rebuild every filter from its data file
+     */
+    public static void rebuildAll() {
+        for (ExistenceFilter filter : FILTERS) {
+            filter.rebuild();
+        }
+    }
+
+    /**
+     * Current statistics of every filter
+     */
+    public static List<ExistenceFilterStats> allStats() {
+        List<ExistenceFilterStats> stats = new ArrayList<>(FILTERS.size());
+        for (ExistenceFilter filter : FILTERS) {
+            stats.add(filter.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Check whether a key exists, running the exact check only when the
+     * filter cannot rule the key out
+     */
+    boolean contains(String key, Predicate<String> exact) {
+        checks.increment();
+        synchronized (this) {
+            ensureBuilt();
+            if (!filter.mightContain(key)) {
+                negatives.increment();
+                return false;
+            }
+        }
+        boolean found = exact.test(key);
+        if (!found) {
+            falsePositives.increment();
+        }
+        return found;
+    }
+
+    /**
+     * Record a key that has just been written to the data file (nothing to do
+     * before the first check, which reads it from the file)
+     */
+    synchronized void add(String key) {
+        if (filter == null) {
+            return;
+        }
+        if (filter.keyCount() >= capacity) {
+            build(capacity * 2);
+        } else {
+            filter.put(key);
+        }
+    }
+
+    /**
+     * Rebuild from the data file, dropping keys that no longer exist
+     */
+    synchronized void rebuild() {
+        build(0);
+    }
+
+    synchronized ExistenceFilterStats stats() {
+        return new ExistenceFilterStats(name,
+                filter != null ? filter.keyCount() : 0,
+                filter != null ? filter.bitCount() : 0,
+                filter != null ? filter.expectedFalsePositiveRate() : 0.0,
+                checks.sum(), negatives.sum(), falsePositives.sum());
+    }
+
+    private void ensureBuilt() {
+        if (filter == null) {
+            build(0);
+        }
+    }
+
+    private void build(int minCapacity) {
+        long start = System.currentTimeMillis();
+        Collection<String> keys = loader.get();
+        capacity = Math.max(Math.max(MIN_CAPACITY, minCapacity), keys.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        for (String key : keys) {
+            rebuilt.put(key);
+        }
+        filter = rebuilt;
+        logger.info("Built {} filter with {} keys in {} bits ({} hashes) in {} ms",
+                name, keys.size(), rebuilt.bitCount(), rebuilt.hashCount(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,75 @@
+package com.rentalapp.dao;
+
+/**
+ * Point-in-time statistics of one {@link ExistenceFilter}
+ */
+public class ExistenceFilterStats {
+
+    private final String name;
+    private final int keyCount;
+    private final int bitCount;
+    private final double expectedFalsePositiveRate;
+    private final long checks;
+    private final long definiteNegatives;
+    private final long falsePositives;
+
+    public ExistenceFilterStats(String name, int keyCount, int bitCount, double expectedFalsePositiveRate,
+                                long checks, long definiteNegatives, long falsePositives) {
+        this.name = name;
+        this.keyCount = keyCount;
+        this.bitCount = bitCount;
+        this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+        this.checks = checks;
+        this.definiteNegatives = definiteNegatives;
+        this.falsePositives = falsePositives;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Keys in the filter, including ones since deleted
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    public int getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * False-positive rate predicted from the bits set
+     */
+    public double getExpectedFalsePositiveRate() {
+        return expectedFalsePositiveRate;
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Checks answered by the filter alone
+     */
+    public long getDefiniteNegatives() {
+        return definiteNegatives;
+    }
+
+    /**
+     * Checks the filter passed on whose exact check then found nothing
+     */
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    /**
+     * Share of checks for absent keys that still needed the exact check, or 0
+     * before any such check
+     */
+    public double getObservedFalsePositiveRate() {
+        long absent = definiteNegatives + falsePositives;
+        return absent == 0 ? 0.0 : (double) falsePositives / absent;
+    }
+}
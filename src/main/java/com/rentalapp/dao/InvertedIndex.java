@@ -0,0 +1,356 @@
+package com.rentalapp.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process full-text index from words to the documents (records) that
+ * contain them.
+ * <p>
+ * Text is split into lower-case words of letters and digits. Each query word
+ * matches every indexed word that starts with it, so partial words still find
+ * results; a document must match all query words. Results are ranked by
+ * TF-IDF, with exact word matches counting double a prefix match. Documents
+ * are added, replaced and removed one at a time, so the owning DAO keeps the
+ * index current as it writes. Postings are kept in primitive arrays keyed by
+ * a document number, so scoring a query does not box anything. Thread-safe.
+ */
+class InvertedIndex {
+
+    // Shorter words are not indexed or searched for
+    private static final int MIN_WORD_LENGTH = 2;
+
+    // Score factor for a word that only starts with the query word
+    private static final double PREFIX_WEIGHT = 0.5;
+
+    /**
+     * Documents containing one word and how often each contains it (unordered)
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] counts = new int[4];
+        int size;
+
+        void add(int doc, int count) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            docs[size] = doc;
+            counts[size] = count;
+            size++;
+        }
+
+        void remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    // Order does not matter, so fill the gap with the last entry
+                    size--;
+                    docs[i] = docs[size];
+                    counts[i] = counts[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-document working arrays for scoring a query, indexed by document
+     * number. Reused across queries on the same thread; a query resets only
+     * the entries it touched, so its cost follows the postings it reads
+     * rather than the number of documents.
+     */
+    private static final class Scratch {
+        double[] scores = new double[0];
+        int[] matched = new int[0];
+        double[] best = new double[0];
+        int[] touched = new int[0];
+        int[] candidates = new int[0];
+
+        Scratch ensureCapacity(int capacity) {
+            if (scores.length < capacity) {
+                int size = Math.max(capacity, scores.length * 2);
+                scores = Arrays.copyOf(scores, size);
+                matched = Arrays.copyOf(matched, size);
+                best = Arrays.copyOf(best, size);
+                touched = new int[size];
+                candidates = new int[size];
+            }
+            return this;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Postings by word, sorted by word for prefix lookups
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+
+    // Document numbers by id, and per document number its id and word counts
+    private final Map<String, Integer> numbers = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<Map<String, Integer>> words = new ArrayList<>();
+    private final List<Integer> freeNumbers = new ArrayList<>();
+
+    /**
+     * Index a document, replacing any earlier version of it
+     *
+     * @param id the record id
+     * @param fields the texts to index (null fields are skipped)
+     */
+    void put(String id, String... fields) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String field : fields) {
+            for (String word : tokenize(field)) {
+                counts.merge(word, 1, Integer::sum);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            int doc;
+            if (freeNumbers.isEmpty()) {
+                doc = ids.size();
+                ids.add(id);
+                words.add(counts);
+            } else {
+                doc = freeNumbers.remove(freeNumbers.size() - 1);
+                ids.set(doc, id);
+                words.set(doc, counts);
+            }
+            numbers.put(id, doc);
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new Postings()).add(doc, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a document from the index
+     */
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            numbers.clear();
+            ids.clear();
+            words.clear();
+            freeNumbers.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of documents indexed
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return numbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents matching every word of the query, best first
+     *
+     * @param limit the maximum number of ids to return
+     * @return the matching ids by descending score; empty for a query without words
+     */
+    List<String> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        Scratch scratch = SCRATCH.get().ensureCapacity(ids.size());
+        int[] firstTouched = null;
+        int firstTouchedCount = 0;
+        try {
+            int[] touched = null;
+            int touchedCount = 0;
+
+            for (int w = 0; w < queryWords.size(); w++) {
+                String word = queryWords.get(w);
+                // Every later match is among the first word's documents, so those are all there is to reset
+                touched = w == 0 ? scratch.touched : scratch.candidates;
+                touchedCount = 0;
+
+                // Best score of any indexed word starting with the query word, per document
+                for (Map.Entry<String, Postings> entry : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+                    Postings list = entry.getValue();
+                    double idf = Math.log(1.0 + (double) numbers.size() / list.size);
+                    double weight = entry.getKey().equals(word) ? idf : idf * PREFIX_WEIGHT;
+                    for (int i = 0; i < list.size; i++) {
+                        int doc = list.docs[i];
+                        if (scratch.matched[doc] != w) {
+                            continue; // missed an earlier query word
+                        }
+                        double score = (1.0 + Math.log(list.counts[i])) * weight;
+                        if (scratch.best[doc] == 0) {
+                            touched[touchedCount++] = doc;
+                        }
+                        scratch.best[doc] = Math.max(scratch.best[doc], score);
+                    }
+                }
+
+                for (int i = 0; i < touchedCount; i++) {
+                    int doc = touched[i];
+                    scratch.scores[doc] += scratch.best[doc];
+                    scratch.matched[doc]++;
+                    scratch.best[doc] = 0;
+                }
+
+                if (w == 0) {
+                    firstTouched = touched;
+                    firstTouchedCount = touchedCount;
+                }
+                if (touchedCount == 0) {
+                    return new ArrayList<>();
+                }
+            }
+
+            // The documents touched by the last word are the ones that matched every word
+            return topScores(touched, touchedCount, scratch.scores, limit);
+        } finally {
+            for (int i = 0; i < firstTouchedCount; i++) {
+                scratch.scores[firstTouched[i]] = 0;
+                scratch.matched[firstTouched[i]] = 0;
+            }
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split text into lower-case words of letters and digits
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= MIN_WORD_LENGTH) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The ids of the given documents with the highest scores, best first
+     * (ties by document number, so the order is stable)
+     */
+    private List<String> topScores(int[] docs, int count, double[] scores, int limit) {
+        // Min-heap of document numbers on score, holding the best so far
+        int[] heap = new int[Math.min(limit, count)];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int doc = docs[i];
+            if (size < heap.length) {
+                heap[size] = doc;
+                siftUp(heap, size++, scores);
+            } else if (size > 0 && better(doc, heap[0], scores)) {
+                heap[0] = doc;
+                siftDown(heap, size, scores);
+            }
+        }
+
+        String[] result = new String[size];
+        while (size > 0) {
+            result[--size] = ids.get(heap[0]);
+            heap[0] = heap[size];
+            siftDown(heap, size, scores);
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    private static boolean better(int a, int b, double[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int i, double[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!better(heap[parent], heap[i], scores)) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, double[] scores) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!better(heap[i], heap[child], scores)) {
+                return;
+            }
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    private void removeDocument(String id) {
+        Integer doc = numbers.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String word : words.get(doc).keySet()) {
+            Postings list = postings.get(word);
+            if (list != null) {
+                list.remove(doc);
+                if (list.size == 0) {
+                    postings.remove(word);
+                }
+            }
+        }
+        ids.set(doc, null);
+        words.set(doc, null);
+        freeNumbers.add(doc);
+    }
+}
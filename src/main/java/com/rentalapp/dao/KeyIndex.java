@@ -0,0 +1,84 @@
+package com.rentalapp.dao;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Secondary index from a key (user, vehicle, status, ...) to the ids of the
+ * records that have it, in the order they were indexed. Not thread-safe; the
+ * owning store calls it under its own lock.
+ */
+class KeyIndex {
+
+    private final Map<String, Set<String>> idsByKey = new HashMap<>();
+
+    /**
+     * Index a record under a key (null keys are not indexed)
+     */
+    void add(String key, String id) {
+        if (key != null) {
+            idsByKey.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+
+    /**
+     * Remove a record from under a key
+     */
+    void remove(String key, String id) {
+        if (key == null) {
+            return;
+        }
+        Set<String> ids = idsByKey.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            idsByKey.remove(key);
+        }
+    }
+
+    /**
+     * Move a record to a new key, leaving it in place if the key is unchanged
+     */
+    void move(String oldKey, String newKey, String id) {
+        if (!Objects.equals(oldKey, newKey)) {
+            remove(oldKey, id);
+            add(newKey, id);
+        }
+    }
+
+    /**
+     * Get the ids under a key (read-only, empty if none)
+     */
+    Set<String> get(String key) {
+        Set<String> ids = key != null ? idsByKey.get(key) : null;
+        return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+    }
+
+    /**
+     * Count the ids under a key
+     */
+    int count(String key) {
+        return get(key).size();
+    }
+
+    void clear() {
+        idsByKey.clear();
+    }
+
+    /**
+     * Key for a value compared with equalsIgnoreCase: two values get the same
+     * key whenever equalsIgnoreCase finds them equal (null stays null)
+     */
+    static String foldCase(String value) {
+        if (value == null) {
+            return null;
+        }
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
@@ -2,15 +2,17 @@ package com.rentalapp.dao;
 
 import com.rentalapp.model.Payment;
 import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -23,29 +25,65 @@ public class PaymentDAO {
     private static final String PAYMENTS_FILE = "payments.txt";
     private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // Shared by every DAO instance so the file is parsed only once
+    private static final PaymentStore STORE = new PaymentStore(PaymentDAO::readPayments);
+    
+    /**
+     * Loads the payments, with their status counts, ahead of the first request.
+     * 
+     * @return the number of records loaded
+     */
+    static int warmUp() {
+        return STORE.size();
+    }
+    
     /**
      * Retrieves all payments from the data store.
      * 
      * @return a list of all payments
      */
     public List<Payment> getAllPayments() {
-        List<String> lines = FileUtil.readAllLines(PAYMENTS_FILE);
+        return STORE.getAll();
+    }
+    
+    /**
+     * Parses every payment in the data file.
+     */
+    private static List<Payment> readPayments() {
         List<Payment> payments = new ArrayList<>();
+        RecordCodec record = new RecordCodec();
         
-        for (String line : lines) {
-            try {
-                Payment payment = parsePaymentFromLine(line);
-                if (payment != null) {
-                    payments.add(payment);
+        try {
+            FileUtil.readEachLine(PAYMENTS_FILE, line -> {
+                try {
+                    Payment payment = parsePaymentFromLine(line, record);
+                    if (payment != null) {
+                        payments.add(payment);
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error parsing payment line: " + line, e);
                 }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Error parsing payment line: " + line, e);
-            }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading payments file", e);
         }
         
         return payments;
     }
     
+    /**
+     * Rewrites the whole payments file.
+     */
+    private static void writePayments(Collection<Payment> payments) throws IOException {
+        List<String> lines = payments.stream()
+                .map(PaymentDAO::formatPaymentToLine)
+                .collect(Collectors.toList());
+        
+        if (!FileUtil.writeAllLines(PAYMENTS_FILE, lines)) {
+            throw new IOException("Failed to write payments file");
+        }
+    }
+    
     /**
      * Retrieves a payment by ID.
      * 
@@ -57,15 +95,7 @@ public class PaymentDAO {
             return null;
         }
         
-        List<Payment> payments = getAllPayments();
-        
-        for (Payment payment : payments) {
-            if (payment.getId().equals(id)) {
-                return payment;
-            }
-        }
-        
-        return null;
+        return RequestIdentityMap.lookup(PAYMENTS_FILE, id, () -> STORE.get(id));
     }
     
     /**
@@ -79,18 +109,15 @@ public class PaymentDAO {
             return false;
         }
         
-        // Check if payment already exists
-        if (getPaymentById(payment.getId()) != null) {
-            return false;
-        }
-        
         // Set payment date if not already set
         if (payment.getPaymentDate() == null) {
             payment.setPaymentDate(LocalDateTime.now());
         }
         
-        String paymentLine = formatPaymentToLine(payment);
-        return FileUtil.appendLine(PAYMENTS_FILE, paymentLine);
+        RequestIdentityMap.invalidate(PAYMENTS_FILE);
+        
+        // The store rejects duplicate IDs; concurrent adds share one group commit
+        return STORE.addQueued(payment, p -> FileUtil.appendLineAsync(PAYMENTS_FILE, formatPaymentToLine(p)));
     }
     
     /**
@@ -104,26 +131,23 @@ public class PaymentDAO {
             return false;
         }
         
-        List<Payment> payments = getAllPayments();
-        boolean found = false;
-        
-        for (int i = 0; i < payments.size(); i++) {
-            if (payments.get(i).getId().equals(payment.getId())) {
-                payments.set(i, payment);
-                found = true;
-                break;
-            }
-        }
-        
-        if (!found) {
-            return false;
+        RequestIdentityMap.invalidate(PAYMENTS_FILE);
+        return STORE.replace(payment, PaymentDAO::writePayments);
+    }
+    
+    /**
+     * Updates a payment only if nobody else has updated it since it was read.
+     * 
+     * @param payment the changed payment, still carrying the version it was read at
+     * @return CONFLICT if the stored payment has moved on, in which case nothing is saved
+     */
+    public UpdateResult updatePaymentIfUnchanged(Payment payment) {
+        if (payment == null || payment.getId() == null || payment.getId().isEmpty()) {
+            return UpdateResult.NOT_FOUND;
         }
         
-        List<String> lines = payments.stream()
-                .map(Payment::toString)
-                .collect(Collectors.toList());
-        
-        return FileUtil.writeAllLines(PAYMENTS_FILE, lines);
+        RequestIdentityMap.invalidate(PAYMENTS_FILE);
+        return STORE.replaceIfUnchanged(payment, PaymentDAO::writePayments);
     }
     
     /**
@@ -137,18 +161,8 @@ public class PaymentDAO {
             return false;
         }
         
-        List<Payment> payments = getAllPayments();
-        boolean removed = payments.removeIf(p -> p.getId().equals(id));
-        
-        if (!removed) {
-            return false;
-        }
-        
-        List<String> lines = payments.stream()
-                .map(Payment::toString)
-                .collect(Collectors.toList());
-        
-        return FileUtil.writeAllLines(PAYMENTS_FILE, lines);
+        RequestIdentityMap.invalidate(PAYMENTS_FILE);
+        return STORE.remove(id, PaymentDAO::writePayments);
     }
     
     /**
@@ -172,11 +186,17 @@ public class PaymentDAO {
      * @return a list of payments with the specified status
      */
     public List<Payment> getPaymentsByStatus(String status) {
-        List<Payment> payments = getAllPayments();
-        
-        return payments.stream()
-                .filter(p -> p.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+        return STORE.findByStatus(status);
+    }
+    
+    /**
+     * Counts the payments with a specific status, without loading them.
+     * 
+     * @param status the status to count (case-insensitive)
+     * @return the number of payments with the status
+     */
+    public int countPaymentsByStatus(String status) {
+        return STORE.countByStatus(status);
     }
     
     /**
@@ -230,7 +250,7 @@ public class PaymentDAO {
         
         // Create a new payment record for the refund
         Payment refund = new Payment();
-        refund.setId(UUID.randomUUID().toString());
+        refund.setId(FileUtil.generateUniqueId());
         refund.setBookingId(payment.getBookingId());
         refund.setAmount(payment.getAmount().negate()); // Negative amount for refund
         refund.setPaymentDate(LocalDateTime.now());
@@ -252,52 +272,57 @@ public class PaymentDAO {
     /**
      * Parse payment data from a line in the data file
      */
-    private Payment parsePaymentFromLine(String line) {
-        if (line == null || line.trim().isEmpty()) {
+    private static Payment parsePaymentFromLine(CharSequence line, RecordCodec record) {
+        if (line == null || isBlank(line)) {
             return null;
         }
         
-        String[] parts = line.split("\\|");
-        if (parts.length < 8) { // Check for minimum required fields
+        record.reset(line, RecordCodec.PIPE);
+        int fields = record.fieldCount();
+        if (fields < 8) { // Check for minimum required fields
             LOGGER.warning("Invalid payment data format: " + line);
             return null;
         }
         
         try {
             Payment payment = new Payment();
-            payment.setId(parts[0]);
-            payment.setBookingId(parts[1]);
-            payment.setUserId(parts[2]);
-            payment.setAmount(new BigDecimal(parts[3]));
-            payment.setPaymentMethod(parts[4]);
-            payment.setSlipImagePath(parts[5]);
+            payment.setId(record.getString(0));
+            payment.setBookingId(record.getString(1));
+            payment.setUserId(record.getString(2));
+            payment.setAmount(record.getDecimal(3));
+            payment.setPaymentMethod(record.getString(4));
+            payment.setSlipImagePath(record.getString(5));
             
             try {
-                payment.setPaymentDate(LocalDateTime.parse(parts[6], DATETIME_FORMATTER));
+                payment.setPaymentDate(record.getDateTime(6));
             } catch (DateTimeParseException e) {
-                LOGGER.warning("Invalid payment date format: " + parts[6]);
+                LOGGER.warning("Invalid payment date format: " + record.getString(6));
                 payment.setPaymentDate(LocalDateTime.now());
             }
             
-            payment.setStatus(parts[7]);
+            payment.setStatus(record.getString(7));
             
             // Optional fields
-            if (parts.length > 8) {
-                payment.setNotes(parts[8]);
+            if (fields > 8) {
+                payment.setNotes(record.getString(8));
             }
             
-            if (parts.length > 9) {
-                payment.setAdminId(parts[9]);
+            if (fields > 9) {
+                payment.setAdminId(record.getString(9));
             }
             
-            if (parts.length > 10) {
+            if (record.hasValue(10)) {
                 try {
-                    payment.setProcessedDate(LocalDateTime.parse(parts[10], DATETIME_FORMATTER));
+                    payment.setProcessedDate(record.getDateTime(10));
                 } catch (DateTimeParseException e) {
                     // Optional field, ignore parsing error
                 }
             }
             
+            if (record.hasValue(11)) {
+                payment.setVersion(record.getLong(11));
+            }
+            
             return payment;
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error parsing payment data: " + line, e);
@@ -308,7 +333,7 @@ public class PaymentDAO {
     /**
      * Format a payment object to a string for storage
      */
-    private String formatPaymentToLine(Payment payment) {
+    private static String formatPaymentToLine(Payment payment) {
         if (payment == null) {
             return "";
         }
@@ -336,6 +361,18 @@ public class PaymentDAO {
             sb.append(payment.getProcessedDate().format(DATETIME_FORMATTER));
         }
         
+        sb.append("|").append(payment.getVersion());
+        
         return sb.toString();
     }
+    
+    // Same test as trim().isEmpty(), without copying the mapped line into a String
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
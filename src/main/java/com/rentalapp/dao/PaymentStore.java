@@ -0,0 +1,85 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Payment;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Shared in-memory copy of payments.txt, indexed by payment id and by status
+ */
+class PaymentStore extends EntityStore<Payment> {
+
+    private final Supplier<List<Payment>> loader;
+
+    // Payment IDs per (upper-case) status; the set sizes are the live counts
+    private final KeyIndex idsByStatus = new KeyIndex();
+
+    PaymentStore(Supplier<List<Payment>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Get copies of the payments with a status (case-insensitive)
+     */
+    List<Payment> findByStatus(String status) {
+        return read(() -> copiesOf(idsByStatus.get(statusKey(status))));
+    }
+
+    /**
+     * Count the payments with a status (case-insensitive) without copying them
+     */
+    int countByStatus(String status) {
+        return read(() -> idsByStatus.count(statusKey(status)));
+    }
+
+    @Override
+    protected List<Payment> loadAll() {
+        return loader.get();
+    }
+
+    @Override
+    protected String idOf(Payment payment) {
+        return payment.getId();
+    }
+
+    @Override
+    protected Payment copyOf(Payment payment) {
+        return new Payment(payment);
+    }
+
+    @Override
+    protected long versionOf(Payment payment) {
+        return payment.getVersion();
+    }
+
+    @Override
+    protected void setVersion(Payment payment, long version) {
+        payment.setVersion(version);
+    }
+
+    @Override
+    protected void indexAdded(Payment payment) {
+        idsByStatus.add(statusKey(payment.getStatus()), payment.getId());
+    }
+
+    @Override
+    protected void indexRemoved(Payment payment) {
+        idsByStatus.remove(statusKey(payment.getStatus()), payment.getId());
+    }
+
+    @Override
+    protected void indexReplaced(Payment previous, Payment current) {
+        idsByStatus.move(statusKey(previous.getStatus()), statusKey(current.getStatus()), current.getId());
+    }
+
+    @Override
+    protected void indexCleared() {
+        idsByStatus.clear();
+    }
+
+    private static String statusKey(String status) {
+        return status != null ? status.toUpperCase(Locale.ROOT) : null;
+    }
+}
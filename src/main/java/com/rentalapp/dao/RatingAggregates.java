@@ -0,0 +1,248 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Review;
+import com.rentalapp.model.Vehicle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Running rating totals per vehicle: the sum, the count and how many reviews
+ * gave each number of stars.
+ * <p>
+ * Built from the reviews file on first use, then adjusted by each review
+ * written, so reading a vehicle's rating costs the same however many reviews
+ * there are. The rating of every review is remembered, which makes a repeated
+ * or late report harmless and lets an update move a review between vehicles.
+ * <p>
+ * The rating copied onto each vehicle record is brought up to date lazily:
+ * changed vehicles are collected and written together with one rewrite of
+ * the vehicles file, on a timer, once enough have piled up, and at shutdown.
+ */
+class RatingAggregates {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingAggregates.class);
+
+    /**
+     * Totals for one vehicle
+     */
+    private static final class Tally {
+        long total;
+        int count;
+        final int[] starCounts = new int[RatingSummary.MAX_STARS];
+
+        void add(int rating, int delta) {
+            // Out-of-range ratings count as the nearest star, in the average and the breakdown alike
+            int stars = Math.min(Math.max(rating, 1), RatingSummary.MAX_STARS);
+            total += (long) stars * delta;
+            count += delta;
+            starCounts[stars - 1] += delta;
+        }
+
+        RatingSummary summary() {
+            return new RatingSummary(count, total, starCounts);
+        }
+    }
+
+    /**
+     * What a review currently counts towards
+     */
+    private static final class Counted {
+        final String vehicleId;
+        final int rating;
+
+        Counted(String vehicleId, int rating) {
+            this.vehicleId = vehicleId;
+            this.rating = rating;
+        }
+    }
+
+    private static final RatingSummary NO_RATINGS = new RatingSummary(0, 0, new int[RatingSummary.MAX_STARS]);
+
+    private final Supplier<List<Review>> loader;
+    private final int flushBatchSize;
+
+    private final Map<String, Tally> tallies = new HashMap<>();
+    private final Map<String, Counted> reviews = new HashMap<>();
+    private final Set<String> staleVehicles = new LinkedHashSet<>();
+    private boolean loaded;
+    private ScheduledExecutorService flusher;
+    private boolean flushQueued;
+
+    /**
+     * @param loader reads every review, to build the totals on first use
+     * @param flushBatchSize number of changed vehicles that triggers a flush
+     */
+    RatingAggregates(Supplier<List<Review>> loader, int flushBatchSize) {
+        this.loader = loader;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    /**
+     * Load the totals now rather than on the first lookup
+     */
+    synchronized void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * The ratings of one vehicle
+     */
+    synchronized RatingSummary summary(String vehicleId) {
+        ensureLoaded();
+        Tally tally = tallies.get(vehicleId);
+        return tally == null ? NO_RATINGS : tally.summary();
+    }
+
+    /**
+     * Count a review that was added or updated (nothing to do before the first read)
+     */
+    synchronized void put(Review review) {
+        if (!loaded) {
+            return;
+        }
+        Counted previous = reviews.get(review.getId());
+        if (previous != null && previous.vehicleId.equals(review.getVehicleId())
+                && previous.rating == review.getRating()) {
+            return;
+        }
+        uncount(previous);
+        count(review);
+        scheduleFlushIfDue();
+    }
+
+    /**
+     * Stop counting a deleted review
+     */
+    synchronized void remove(String reviewId) {
+        if (!loaded) {
+            return;
+        }
+        uncount(reviews.remove(reviewId));
+        scheduleFlushIfDue();
+    }
+
+    /**
+     * Write the current rating onto every vehicle whose record is behind
+     */
+    void flush() {
+        Map<String, RatingSummary> batch = new LinkedHashMap<>();
+        synchronized (this) {
+            for (String vehicleId : staleVehicles) {
+                Tally tally = tallies.get(vehicleId);
+                batch.put(vehicleId, tally == null ? NO_RATINGS : tally.summary());
+            }
+            staleVehicles.clear();
+            flushQueued = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        if (new VehicleDAO().updateRatings(batch)) {
+            logger.debug("Wrote ratings for {} vehicles", batch.size());
+        } else {
+            // Keep them for the next flush
+            synchronized (this) {
+                staleVehicles.addAll(batch.keySet());
+            }
+        }
+    }
+
+    /**
+     * Flush changed ratings every periodSeconds, and sooner when a batch fills up
+     */
+    synchronized void startFlushing(long periodSeconds) {
+        if (flusher != null) {
+            return;
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rating-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the timer and write whatever is still pending
+     */
+    void stopFlushing() {
+        synchronized (this) {
+            if (flusher == null) {
+                return;
+            }
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Error writing vehicle ratings", e);
+        }
+    }
+
+    private void scheduleFlushIfDue() {
+        // At least, not exactly: loading can queue more than a batch of repairs at once
+        if (flusher != null && !flushQueued && staleVehicles.size() >= flushBatchSize) {
+            flushQueued = true;
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void count(Review review) {
+        tallies.computeIfAbsent(review.getVehicleId(), id -> new Tally()).add(review.getRating(), 1);
+        reviews.put(review.getId(), new Counted(review.getVehicleId(), review.getRating()));
+        staleVehicles.add(review.getVehicleId());
+    }
+
+    private void uncount(Counted counted) {
+        if (counted == null) {
+            return;
+        }
+        Tally tally = tallies.get(counted.vehicleId);
+        tally.add(counted.rating, -1);
+        if (tally.count == 0) {
+            tallies.remove(counted.vehicleId);
+        }
+        staleVehicles.add(counted.vehicleId);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        for (Review review : loader.get()) {
+            if (review.getId() != null && review.getVehicleId() != null) {
+                tallies.computeIfAbsent(review.getVehicleId(), id -> new Tally()).add(review.getRating(), 1);
+                reviews.put(review.getId(), new Counted(review.getVehicleId(), review.getRating()));
+            }
+        }
+        loaded = true;
+
+        // Records written before the totals were kept may have drifted; queue those for repair
+        for (Vehicle vehicle : new VehicleDAO().getAllVehicles()) {
+            Tally tally = tallies.get(vehicle.getId());
+            RatingSummary summary = tally == null ? NO_RATINGS : tally.summary();
+            if (vehicle.getReviewCount() != summary.getCount()
+                    || Math.abs(vehicle.getAvgRating() - summary.getAverage()) > 1e-9) {
+                staleVehicles.add(vehicle.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rentalapp.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The review ratings of one vehicle: how many there are, their average and
+ * how many reviews gave each number of stars.
+ */
+public class RatingSummary {
+
+    /** Highest rating a review can give */
+    public static final int MAX_STARS = 5;
+
+    private final int count;
+    private final long total;
+    private final int[] starCounts;
+
+    /**
+     * @param starCounts reviews per rating, index 0 holding the one-star reviews
+     */
+    public RatingSummary(int count, long total, int[] starCounts) {
+        this.count = count;
+        this.total = total;
+        this.starCounts = starCounts.clone();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Average rating, or 0 when the vehicle has no reviews
+     */
+    public double getAverage() {
+        return count == 0 ? 0.0 : (double) total / count;
+    }
+
+    /**
+     * Number of reviews giving the given number of stars (1 to {@link #MAX_STARS})
+     */
+    public int getStarCount(int stars) {
+        return stars < 1 || stars > MAX_STARS ? 0 : starCounts[stars - 1];
+    }
+
+    /**
+     * Reviews per rating from five stars down to one, for display
+     */
+    public List<Integer> getStarCounts() {
+        List<Integer> counts = new ArrayList<>(MAX_STARS);
+        for (int stars = MAX_STARS; stars >= 1; stars--) {
+            counts.add(getStarCount(stars));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,104 @@
+package com.rentalapp.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-request identity map for DAO reads.
+ * <p>
+ * While a map is open on the current thread, each DAO read is remembered under
+ * its data file and key, and repeating the read returns the same result
+ * instead of parsing the file again. Writes to a file drop everything
+ * remembered for it, so reads after a write see the new contents. Outside a
+ * request (no open map) every read goes straight to the DAO.
+ * <p>
+ * Entities returned from the map are shared within the request: a change made
+ * to one without saving it is visible to later reads in the same request.
+ */
+public final class RequestIdentityMap implements AutoCloseable {
+
+    /**
+     * Key for a read of every record in a file
+     */
+    static final Object ALL_RECORDS = new Object();
+
+    private static final ThreadLocal<RequestIdentityMap> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Map<Object, Object>> entriesByFile = new HashMap<>();
+    private int hits;
+    private int misses;
+
+    private RequestIdentityMap() {
+    }
+
+    /**
+     * Open an identity map for the current thread, replacing any left open
+     */
+    public static RequestIdentityMap open() {
+        RequestIdentityMap map = new RequestIdentityMap();
+        CURRENT.set(map);
+        return map;
+    }
+
+    /**
+     * Close the map and detach it from the current thread
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        entriesByFile.clear();
+    }
+
+    /**
+     * Number of reads answered from the map
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of reads that went to the DAO
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the remembered result for a read, loading it on first use
+     *
+     * @param file the data file the read depends on
+     * @param key identifies the read within the file
+     * @param loader performs the read
+     */
+    @SuppressWarnings("unchecked")
+    static <R> R lookup(String file, Object key, Supplier<R> loader) {
+        RequestIdentityMap map = CURRENT.get();
+        if (map == null) {
+            return loader.get();
+        }
+
+        Map<Object, Object> entries = map.entriesByFile.computeIfAbsent(file, k -> new HashMap<>());
+        if (entries.containsKey(key)) {
+            map.hits++;
+            return (R) entries.get(key);
+        }
+
+        map.misses++;
+        R result = loader.get();
+        entries.put(key, result);
+        return result;
+    }
+
+    /**
+     * Forget every remembered read of a file after it has been written
+     */
+    static void invalidate(String file) {
+        RequestIdentityMap map = CURRENT.get();
+        if (map != null) {
+            map.entriesByFile.remove(file);
+        }
+    }
+}
@@ -1,21 +1,25 @@
 package com.rentalapp.dao;
 
 import com.rentalapp.model.Review;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Data Access Object for Review operations
@@ -23,12 +27,60 @@ import java.util.UUID;
 public class ReviewDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(ReviewDAO.class);
-    private static final String REVIEWS_FILE_PATH = "src/main/resources/data/reviews.txt";
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final String REVIEWS_FILE = "reviews.txt";
+    private static final String REVIEWS_FILE_PATH = "src/main/resources/data/" + REVIEWS_FILE;
+    
+    // Held across every write to reviews.txt, so an append cannot land in the file
+    // between a rewrite reading it and renaming the new contents over it
+    private static final Object WRITE_LOCK = new Object();
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    
+    // Words of every review comment, and the reviews the search results point at;
+    // built on the first search, then kept current by the writes below
+    private static final InvertedIndex COMMENT_INDEX = new InvertedIndex();
+    private static final Map<String, Review> INDEXED_REVIEWS = new HashMap<>(); // guarded by COMMENT_INDEX
+    private static boolean commentIndexLoaded; // guarded by COMMENT_INDEX
+    
+    // Rating totals per vehicle, and how often the totals are copied onto the vehicle records
+    private static final long RATING_FLUSH_PERIOD_SECONDS = 30;
+    private static final int RATING_FLUSH_BATCH_SIZE = 50;
+    private static final RatingAggregates RATINGS =
+            new RatingAggregates(() -> new ReviewDAO().readReviewsFile(), RATING_FLUSH_BATCH_SIZE);
+    
+    // Lets hasUserReviewedVehicle answer "no" without reading the file
+    private static final ExistenceFilter REVIEWERS =
+            new ExistenceFilter("user/vehicle reviews", () -> new ReviewDAO().reviewerKeys());
     
     private VehicleDAO vehicleDAO;
     private UserDAO userDAO;
     
+    /**
+     * Start writing changed ratings onto the vehicle records in the background
+     */
+    public static void startRatingFlush() {
+        RATINGS.startFlushing(RATING_FLUSH_PERIOD_SECONDS);
+    }
+    
+    /**
+     * Stop the background writes and write any ratings still pending
+     */
+    public static void stopRatingFlush() {
+        RATINGS.stopFlushing();
+    }
+    
+    /**
+     * Build the comment index and the rating totals ahead of the first request
+     * 
+     * @return the number of reviews read
+     */
+    static int warmUp() {
+        List<Review> reviews = new ReviewDAO().readReviewsFile();
+        ensureCommentIndex(() -> reviews);
+        RATINGS.warmUp();
+        return reviews.size();
+    }
+    
     /**
      * Default constructor
      */
@@ -41,20 +93,29 @@ public class ReviewDAO {
      * Get all reviews
      */
     public List<Review> getAllReviews() {
+        List<Review> reviews = RequestIdentityMap.lookup(REVIEWS_FILE_PATH, RequestIdentityMap.ALL_RECORDS, this::readReviewsFile);
+        return new ArrayList<>(reviews);
+    }
+    
+    /**
+     * Parse every review in the data file
+     */
+    private List<Review> readReviewsFile() {
         List<Review> reviews = new ArrayList<>();
+        RecordCodec record = new RecordCodec();
         
         try (BufferedReader reader = new BufferedReader(new FileReader(REVIEWS_FILE_PATH))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (!line.trim().isEmpty()) {
-                    Review review = parseReviewFromLine(line);
+                    Review review = parseReviewFromLine(line, record);
                     if (review != null) {
                         reviews.add(review);
                     }
                 }
             }
         } catch (IOException e) {
-            logger.error("Error reading reviews file", e);
+            throw new UncheckedIOException("Error reading reviews file", e);
         }
         
         return reviews;
@@ -112,18 +173,14 @@ public class ReviewDAO {
      * Get average rating for a vehicle
      */
     public double getAverageRatingForVehicle(String vehicleId) {
-        List<Review> reviews = getReviewsByVehicleId(vehicleId);
-        
-        if (reviews.isEmpty()) {
-            return 0.0;
-        }
-        
-        double totalRating = 0.0;
-        for (Review review : reviews) {
-            totalRating += review.getRating();
-        }
-        
-        return totalRating / reviews.size();
+        return RATINGS.summary(vehicleId).getAverage();
+    }
+    
+    /**
+     * Get the review count, average and per-star counts for a vehicle
+     */
+    public RatingSummary getRatingSummary(String vehicleId) {
+        return RATINGS.summary(vehicleId);
     }
     
     /**
@@ -152,12 +209,51 @@ public class ReviewDAO {
      * Check if a user has already reviewed a vehicle
      */
     public boolean hasUserReviewedVehicle(String userId, String vehicleId) {
-        for (Review review : getAllReviews()) {
-            if (review.getUserId().equals(userId) && review.getVehicleId().equals(vehicleId)) {
-                return true;
+        return REVIEWERS.contains(reviewerKey(userId, vehicleId), key -> {
+            for (Review review : getAllReviews()) {
+                if (review.getUserId().equals(userId) && review.getVehicleId().equals(vehicleId)) {
+                    return true;
+                }
             }
+            return false;
+        });
+    }
+    
+    /**
+     * Index the comments of every review, unless the index is already built
+     */
+    private static void ensureCommentIndex(Supplier<List<Review>> reviews) {
+        synchronized (COMMENT_INDEX) {
+            if (!commentIndexLoaded) {
+                for (Review review : reviews.get()) {
+                    COMMENT_INDEX.put(review.getId(), review.getComment());
+                    INDEXED_REVIEWS.put(review.getId(), new Review(review));
+                }
+                commentIndexLoaded = true;
+            }
+        }
+    }
+    
+    /**
+     * Search review comments by keywords, best matches first. Every word must
+     * match, either whole or as the start of a word in the comment.
+     * 
+     * @param query the keywords
+     * @param limit the maximum number of reviews to return
+     */
+    public List<Review> searchReviews(String query, int limit) {
+        ensureCommentIndex(this::readReviewsFile);
+        List<String> ids = COMMENT_INDEX.search(query, limit);
+        synchronized (COMMENT_INDEX) {
+            List<Review> results = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Review review = INDEXED_REVIEWS.get(id);
+                if (review != null) {
+                    results.add(new Review(review));
+                }
+            }
+            return results;
         }
-        return false;
     }
     
     /**
@@ -165,27 +261,25 @@ public class ReviewDAO {
      */
     public boolean addReview(Review review) {
         if (review.getId() == null || review.getId().trim().isEmpty()) {
-            review.setId(UUID.randomUUID().toString());
+            review.setId(FileUtil.generateUniqueId());
         }
         
         if (review.getReviewDate() == null) {
             review.setReviewDate(new Date());
         }
         
-        try {
-            String reviewRecord = formatReviewToLine(review);
-            Path path = Paths.get(REVIEWS_FILE_PATH);
-            Files.write(path, (reviewRecord + System.lineSeparator()).getBytes(), 
-                    Files.exists(path) ? java.nio.file.StandardOpenOption.APPEND : java.nio.file.StandardOpenOption.CREATE);
-            
-            // Update vehicle average rating
-            vehicleDAO.getById(review.getVehicleId()).updateRating(review.getRating());
-            vehicleDAO.updateVehicle(vehicleDAO.getById(review.getVehicleId()));
+        synchronized (WRITE_LOCK) {
+            if (!FileUtil.appendLine(REVIEWS_FILE, formatReviewToLine(review))) {
+                logger.error("Error adding review {}", review.getId());
+                return false;
+            }
+            RequestIdentityMap.invalidate(REVIEWS_FILE_PATH);
+            DashboardStatistics.getInstance().reviewAdded(review);
+            commentChanged(review);
+            RATINGS.put(review);
+            REVIEWERS.add(reviewerKey(review.getUserId(), review.getVehicleId()));
             
             return true;
-        } catch (IOException e) {
-            logger.error("Error adding review", e);
-            return false;
         }
     }
     
@@ -193,24 +287,37 @@ public class ReviewDAO {
      * Update an existing review
      */
     public boolean updateReview(Review review) {
-        try {
-            List<Review> reviews = getAllReviews();
-            List<String> lines = new ArrayList<>();
-            
-            for (Review existingReview : reviews) {
-                if (existingReview.getId().equals(review.getId())) {
-                    lines.add(formatReviewToLine(review));
-                } else {
-                    lines.add(formatReviewToLine(existingReview));
+        synchronized (WRITE_LOCK) {
+            try {
+                List<Review> reviews = readReviewsFile();
+                List<String> lines = new ArrayList<>();
+                boolean found = false;
+                
+                for (Review existingReview : reviews) {
+                    if (existingReview.getId().equals(review.getId())) {
+                        lines.add(formatReviewToLine(review));
+                        found = true;
+                    } else {
+                        lines.add(formatReviewToLine(existingReview));
+                    }
                 }
+                
+                if (!found) {
+                    return false;
+                }
+                
+                FileUtil.replaceFile(Paths.get(REVIEWS_FILE_PATH), lines);
+                RequestIdentityMap.invalidate(REVIEWS_FILE_PATH);
+                DashboardStatistics.getInstance().reviewUpdated(review);
+                commentChanged(review);
+                RATINGS.put(review);
+                REVIEWERS.add(reviewerKey(review.getUserId(), review.getVehicleId()));
+                
+                return true;
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Error updating review", e);
+                return false;
             }
-            
-            Files.write(Paths.get(REVIEWS_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error updating review", e);
-            return false;
         }
     }
     
@@ -218,49 +325,94 @@ public class ReviewDAO {
      * Delete a review by ID
      */
     public boolean deleteReview(String reviewId) {
-        try {
-            List<Review> reviews = getAllReviews();
-            List<String> lines = new ArrayList<>();
-            
-            for (Review review : reviews) {
-                if (!review.getId().equals(reviewId)) {
-                    lines.add(formatReviewToLine(review));
+        synchronized (WRITE_LOCK) {
+            try {
+                List<Review> reviews = readReviewsFile();
+                List<String> lines = new ArrayList<>();
+                
+                for (Review review : reviews) {
+                    if (!review.getId().equals(reviewId)) {
+                        lines.add(formatReviewToLine(review));
+                    }
+                }
+                
+                FileUtil.replaceFile(Paths.get(REVIEWS_FILE_PATH), lines);
+                RequestIdentityMap.invalidate(REVIEWS_FILE_PATH);
+                if (lines.size() < reviews.size()) {
+                    DashboardStatistics.getInstance().reviewRemoved(reviewId);
+                    commentRemoved(reviewId);
+                    RATINGS.remove(reviewId);
                 }
+                
+                return true;
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Error deleting review", e);
+                return false;
             }
-            
-            Files.write(Paths.get(REVIEWS_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error deleting review", e);
-            return false;
         }
     }
     
+    /**
+     * Re-index a review comment after it was written (nothing to do before the first search)
+     */
+    private static void commentChanged(Review review) {
+        synchronized (COMMENT_INDEX) {
+            if (commentIndexLoaded) {
+                COMMENT_INDEX.put(review.getId(), review.getComment());
+                INDEXED_REVIEWS.put(review.getId(), new Review(review));
+            }
+        }
+    }
+    
+    private static void commentRemoved(String reviewId) {
+        synchronized (COMMENT_INDEX) {
+            if (commentIndexLoaded) {
+                COMMENT_INDEX.remove(reviewId);
+                INDEXED_REVIEWS.remove(reviewId);
+            }
+        }
+    }
+    
+    /**
+     * Existence filter key for one user's review of one vehicle
+     */
+    private static String reviewerKey(String userId, String vehicleId) {
+        return userId + "|" + vehicleId;
+    }
+    
+    private List<String> reviewerKeys() {
+        List<String> keys = new ArrayList<>();
+        for (Review review : readReviewsFile()) {
+            keys.add(reviewerKey(review.getUserId(), review.getVehicleId()));
+        }
+        return keys;
+    }
+    
     /**
      * Parse a review from a line in the data file
      */
-    private Review parseReviewFromLine(String line) {
-        String[] parts = line.split("\\|");
+    private Review parseReviewFromLine(String line, RecordCodec record) {
+        record.reset(line, RecordCodec.PIPE);
+        int fields = record.fieldCount();
         
-        if (parts.length >= 7) {
+        if (fields >= 7) {
             Review review = new Review();
             
             try {
-                review.setId(parts[0]);
-                review.setUserId(parts[1]);
-                review.setVehicleId(parts[2]);
-                review.setRating(Integer.parseInt(parts[3]));
-                review.setComment(parts[4]);
-                review.setReviewDate(DATE_FORMAT.parse(parts[5]));
-                review.setVerified(Boolean.parseBoolean(parts[6]));
+                review.setId(record.getString(0));
+                review.setUserId(record.getString(1));
+                review.setVehicleId(record.getString(2));
+                review.setRating(record.getInt(3));
+                review.setComment(record.getString(4));
+                review.setReviewDate(Date.from(record.getDateTime(5).atZone(ZoneId.systemDefault()).toInstant()));
+                review.setVerified(record.getBoolean(6));
                 
-                if (parts.length > 7) review.setUserName(parts[7]);
-                if (parts.length > 8) review.setVehicleName(parts[8]);
-                if (parts.length > 9) review.setBookingId(parts[9]);
+                if (fields > 7) review.setUserName(record.getString(7));
+                if (fields > 8) review.setVehicleName(record.getString(8));
+                if (fields > 9) review.setBookingId(record.getString(9));
                 
                 return review;
-            } catch (NumberFormatException | ParseException e) {
+            } catch (NumberFormatException | DateTimeParseException e) {
                 logger.error("Error parsing review data: " + line, e);
             }
         }
@@ -280,7 +432,7 @@ public class ReviewDAO {
           .append(review.getVehicleId()).append("|")
           .append(review.getRating()).append("|")
           .append(review.getComment()).append("|")
-          .append(DATE_FORMAT.format(review.getReviewDate())).append("|")
+          .append(DATE_FORMAT.format(review.getReviewDate().toInstant())).append("|")
           .append(review.isVerified());
         
         // Optional fields
@@ -0,0 +1,36 @@
+package com.rentalapp.dao;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed table of locks shared out by key hash. Work on one key is always
+ * serialized; work on different keys only waits when the keys land on the
+ * same stripe. Unlike a lock per key, the table never grows and nothing has
+ * to be removed when a key goes away.
+ */
+final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * @param minStripes lower bound on the number of stripes, rounded up to a power of two
+     */
+    StripedLocks(int minStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = stripes - 1;
+    }
+
+    /**
+     * The lock guarding a key
+     */
+    ReentrantLock get(String key) {
+        int h = key.hashCode();
+        // Spread the high bits down, since only the low ones pick the stripe
+        return locks[(h ^ (h >>> 16)) & mask];
+    }
+}
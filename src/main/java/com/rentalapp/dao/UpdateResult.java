@@ -0,0 +1,16 @@
+package com.rentalapp.dao;
+
+/**
+ * Outcome of an update that only applies if the record has not changed since
+ * it was read (see {@code VehicleDAO.updateVehicleIfUnchanged} and friends)
+ */
+public enum UpdateResult {
+    /** The update was saved and the record moved to the next version */
+    UPDATED,
+    /** Someone else updated the record since it was read; nothing was saved */
+    CONFLICT,
+    /** The record no longer exists */
+    NOT_FOUND,
+    /** The data file could not be written */
+    FAILED
+}
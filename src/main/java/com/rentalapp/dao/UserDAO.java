@@ -1,20 +1,25 @@
 package com.rentalapp.dao;
 
 import com.rentalapp.model.User;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Data Access Object for User operations
@@ -25,6 +30,24 @@ public class UserDAO {
     private static final String USERS_FILE_PATH = "src/main/resources/data/users.txt";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
+    // Shared by every DAO instance so the file is parsed only once
+    private static final UserStore STORE = new UserStore(UserDAO::readUsersFile);
+    
+    // Let the registration checks answer "not taken" without a lookup
+    private static final ExistenceFilter USERNAMES =
+            new ExistenceFilter("usernames", () -> foldedKeys(User::getUsername));
+    private static final ExistenceFilter EMAILS =
+            new ExistenceFilter("user emails", () -> foldedKeys(User::getEmail));
+    
+    /**
+     * Load the users, with their login indexes, ahead of the first request
+     * 
+     * @return the number of records loaded
+     */
+    static int warmUp() {
+        return STORE.size();
+    }
+    
     /**
      * Default constructor
      */
@@ -36,20 +59,28 @@ public class UserDAO {
      * Get all users
      */
     public List<User> getAllUsers() {
+        return STORE.getAll();
+    }
+    
+    /**
+     * Parse every user in the data file
+     */
+    private static List<User> readUsersFile() {
         List<User> users = new ArrayList<>();
+        RecordCodec record = new RecordCodec();
         
         try (BufferedReader reader = new BufferedReader(new FileReader(USERS_FILE_PATH))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 if (!line.trim().isEmpty()) {
-                    User user = parseUserFromLine(line);
+                    User user = parseUserFromLine(line, record);
                     if (user != null) {
                         users.add(user);
                     }
                 }
             }
         } catch (IOException e) {
-            logger.error("Error reading users file", e);
+            throw new UncheckedIOException("Error reading users file", e);
         }
         
         return users;
@@ -59,19 +90,7 @@ public class UserDAO {
      * Get user by ID
      */
     public User getById(String id) {
-        try {
-            List<User> users = getAllUsers();
-            
-            for (User user : users) {
-                if (user.getId().equals(id)) {
-                    return user;
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error getting user by ID", e);
-        }
-        
-        return null;
+        return RequestIdentityMap.lookup(USERS_FILE_PATH, id, () -> STORE.get(id));
     }
     
     /**
@@ -82,30 +101,37 @@ public class UserDAO {
     }
     
     /**
-     * Get user by email
+     * Get the users with the given IDs in a single lookup
+     * 
+     * @return the users found, keyed by ID (missing IDs are left out)
+     */
+    public Map<String, User> getUsersByIds(Collection<String> ids) {
+        return STORE.getByIds(ids);
+    }
+    
+    /**
+     * Get user by email (case-insensitive)
      */
     public User getByEmail(String email) {
-        try {
-            List<User> users = getAllUsers();
-            
-            for (User user : users) {
-                if (user.getEmail().equalsIgnoreCase(email)) {
-                    return user;
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error getting user by email", e);
-        }
-        
-        return null;
+        return STORE.findByEmail(email);
     }
     
     /**
-     * Authenticate user with email and password
+     * Get user by username (case-insensitive)
      */
-    public User authenticate(String email, String password) {
+    public User getByUsername(String username) {
+        return STORE.findByUsername(username);
+    }
+    
+    /**
+     * Authenticate user with email or username and password
+     */
+    public User authenticate(String login, String password) {
         try {
-            User user = getByEmail(email);
+            User user = getByEmail(login);
+            if (user == null) {
+                user = getByUsername(login);
+            }
             
             if (user != null && user.getPassword().equals(password)) {
                 return user;
@@ -128,19 +154,20 @@ public class UserDAO {
      * Check if a username is already taken
      */
     public boolean isUsernameTaken(String username) {
-        try {
-            List<User> users = getAllUsers();
-            
-            for (User user : users) {
-                if (user.getUsername().equalsIgnoreCase(username)) {
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error checking if username is taken", e);
+        if (username == null) {
+            return false;
         }
-        
-        return false;
+        return USERNAMES.contains(KeyIndex.foldCase(username), key -> getByUsername(username) != null);
+    }
+    
+    /**
+     * Check if an email address is already registered (case-insensitive)
+     */
+    public boolean isEmailTaken(String email) {
+        if (email == null) {
+            return false;
+        }
+        return EMAILS.contains(KeyIndex.foldCase(email), key -> getByEmail(email) != null);
     }
     
     /**
@@ -148,97 +175,140 @@ public class UserDAO {
      */
     public boolean addUser(User user) {
         if (user.getId() == null || user.getId().trim().isEmpty()) {
-            user.setId(UUID.randomUUID().toString());
+            user.setId(FileUtil.generateUniqueId());
         }
         
-        try {
-            String userRecord = formatUserToLine(user);
+        RequestIdentityMap.invalidate(USERS_FILE_PATH);
+        boolean added = STORE.add(user, u -> {
             Path path = Paths.get(USERS_FILE_PATH);
-            Files.write(path, (userRecord + System.lineSeparator()).getBytes(), 
-                    Files.exists(path) ? java.nio.file.StandardOpenOption.APPEND : java.nio.file.StandardOpenOption.CREATE);
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error adding user", e);
-            return false;
+            Files.write(path, (formatUserToLine(u) + System.lineSeparator()).getBytes(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        });
+        if (added) {
+            DashboardStatistics.getInstance().userAdded();
+            filterAdded(user);
         }
+        return added;
     }
     
     /**
      * Update an existing user
      */
     public boolean updateUser(User user) {
-        try {
-            List<User> users = getAllUsers();
-            List<String> lines = new ArrayList<>();
-            
-            for (User existingUser : users) {
-                if (existingUser.getId().equals(user.getId())) {
-                    lines.add(formatUserToLine(user));
-                } else {
-                    lines.add(formatUserToLine(existingUser));
-                }
-            }
-            
-            Files.write(Paths.get(USERS_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error updating user", e);
-            return false;
+        RequestIdentityMap.invalidate(USERS_FILE_PATH);
+        boolean updated = STORE.replace(user, UserDAO::writeUsersFile);
+        if (updated) {
+            filterAdded(user);
+        }
+        return updated;
+    }
+    
+    /**
+     * Update a user only if nobody else has updated it since it was read
+     * 
+     * @param user the changed user, still carrying the version it was read at
+     * @return CONFLICT if the stored user has moved on, in which case nothing is saved
+     */
+    public UpdateResult updateUserIfUnchanged(User user) {
+        RequestIdentityMap.invalidate(USERS_FILE_PATH);
+        UpdateResult result = STORE.replaceIfUnchanged(user, UserDAO::writeUsersFile);
+        if (result == UpdateResult.UPDATED) {
+            filterAdded(user);
         }
+        return result;
     }
     
     /**
      * Delete a user by ID
      */
     public boolean deleteUser(String userId) {
-        try {
-            List<User> users = getAllUsers();
-            List<String> lines = new ArrayList<>();
-            
-            for (User user : users) {
-                if (!user.getId().equals(userId)) {
-                    lines.add(formatUserToLine(user));
-                }
+        RequestIdentityMap.invalidate(USERS_FILE_PATH);
+        boolean removed = STORE.remove(userId, UserDAO::writeUsersFile);
+        if (removed) {
+            DashboardStatistics.getInstance().userRemoved();
+        }
+        return removed;
+    }
+    
+    /**
+     * Rewrite the data file with the given users
+     */
+    private static void writeUsersFile(Collection<User> users) throws IOException {
+        List<String> lines = new ArrayList<>(users.size());
+        for (User user : users) {
+            lines.add(formatUserToLine(user));
+        }
+        
+        FileUtil.replaceFile(Paths.get(USERS_FILE_PATH), lines);
+    }
+    
+    /**
+     * Add a written user's username and email to the existence filters
+     */
+    private static void filterAdded(User user) {
+        if (user.getUsername() != null) {
+            USERNAMES.add(KeyIndex.foldCase(user.getUsername()));
+        }
+        if (user.getEmail() != null) {
+            EMAILS.add(KeyIndex.foldCase(user.getEmail()));
+        }
+    }
+    
+    /**
+     * The case-folded values of one field across all users
+     */
+    private static List<String> foldedKeys(Function<User, String> field) {
+        List<String> keys = new ArrayList<>();
+        for (User user : STORE.getAll()) {
+            String value = field.apply(user);
+            if (value != null) {
+                keys.add(KeyIndex.foldCase(value));
             }
-            
-            Files.write(Paths.get(USERS_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error deleting user", e);
-            return false;
         }
+        return keys;
     }
     
     /**
      * Parse a user from a line in the data file
      */
-    private User parseUserFromLine(String line) {
-        String[] parts = line.split("\\|");
+    private static User parseUserFromLine(String line, RecordCodec record) {
+        // Older registrations were written in the comma-separated User.toString layout
+        if (RecordCodec.delimiterOf(line) == RecordCodec.COMMA) {
+            record.reset(line, RecordCodec.COMMA);
+            try {
+                return User.fromRecord(record);
+            } catch (RuntimeException e) {
+                logger.error("Error parsing user data: " + line, e);
+                return null;
+            }
+        }
+        
+        record.reset(line, RecordCodec.PIPE);
+        int fields = record.fieldCount();
         
-        if (parts.length >= 7) {
+        if (fields >= 7) {
             User user = new User();
             
-            user.setId(parts[0]);
-            user.setEmail(parts[1]);
-            user.setPassword(parts[2]);
-            user.setFirstName(parts[3]);
-            user.setLastName(parts[4]);
-            user.setPhone(parts[5]);
+            user.setId(record.getString(0));
+            user.setEmail(record.getString(1));
+            user.setPassword(record.getString(2));
+            user.setFirstName(record.getString(3));
+            user.setLastName(record.getString(4));
+            user.setPhone(record.getString(5));
             
             try {
-                if (parts[6] != null && !parts[6].isEmpty()) {
-                    user.setDateOfBirth(LocalDate.parse(parts[6], DATE_FORMATTER));
+                if (record.hasValue(6)) {
+                    user.setDateOfBirth(record.getDate(6));
                 }
             } catch (Exception e) {
-                logger.error("Error parsing date of birth: " + parts[6], e);
+                logger.error("Error parsing date of birth: " + record.getString(6), e);
             }
             
-            if (parts.length > 7) user.setAddress(parts[7]);
-            if (parts.length > 8) user.setLicenseNumber(parts[8]);
-            if (parts.length > 9) user.setProfilePicture(parts[9]);
+            if (fields > 7) user.setAddress(record.getString(7));
+            if (fields > 8) user.setLicenseNumber(record.getString(8));
+            if (fields > 9) user.setProfilePicture(record.getString(9));
+            if (record.hasValue(10)) user.setUsername(record.getString(10));
+            if (record.hasValue(11)) user.setVersion(record.getLong(11));
             
             return user;
         }
@@ -249,7 +319,7 @@ public class UserDAO {
     /**
      * Format a user as a line for the data file
      */
-    private String formatUserToLine(User user) {
+    private static String formatUserToLine(User user) {
         StringBuilder sb = new StringBuilder();
         
         sb.append(user.getId()).append("|")
@@ -266,6 +336,8 @@ public class UserDAO {
         sb.append("|").append(user.getAddress() != null ? user.getAddress() : "");
         sb.append("|").append(user.getLicenseNumber() != null ? user.getLicenseNumber() : "");
         sb.append("|").append(user.getProfilePicture() != null ? user.getProfilePicture() : "");
+        sb.append("|").append(user.getUsername() != null ? user.getUsername() : "");
+        sb.append("|").append(user.getVersion());
         
         return sb.toString();
     }
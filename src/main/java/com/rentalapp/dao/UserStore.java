@@ -0,0 +1,96 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.User;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Shared in-memory copy of users.txt, indexed by user id and by case-folded
+ * email and username, so a login is a single lookup
+ */
+class UserStore extends EntityStore<User> {
+
+    private final Supplier<List<User>> loader;
+
+    // User IDs per case-folded email and username, in file order
+    private final KeyIndex idsByEmail = new KeyIndex();
+    private final KeyIndex idsByUsername = new KeyIndex();
+
+    UserStore(Supplier<List<User>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Get a copy of the first user with an email (case-insensitive), or null
+     */
+    User findByEmail(String email) {
+        return read(() -> first(idsByEmail.get(KeyIndex.foldCase(email))));
+    }
+
+    /**
+     * Get a copy of the first user with a username (case-insensitive), or null
+     */
+    User findByUsername(String username) {
+        return read(() -> first(idsByUsername.get(KeyIndex.foldCase(username))));
+    }
+
+    @Override
+    protected List<User> loadAll() {
+        return loader.get();
+    }
+
+    @Override
+    protected String idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected User copyOf(User user) {
+        return new User(user);
+    }
+
+    @Override
+    protected long versionOf(User user) {
+        return user.getVersion();
+    }
+
+    @Override
+    protected void setVersion(User user, long version) {
+        user.setVersion(version);
+    }
+
+    @Override
+    protected void indexAdded(User user) {
+        idsByEmail.add(KeyIndex.foldCase(user.getEmail()), user.getId());
+        idsByUsername.add(KeyIndex.foldCase(user.getUsername()), user.getId());
+    }
+
+    @Override
+    protected void indexRemoved(User user) {
+        idsByEmail.remove(KeyIndex.foldCase(user.getEmail()), user.getId());
+        idsByUsername.remove(KeyIndex.foldCase(user.getUsername()), user.getId());
+    }
+
+    @Override
+    protected void indexReplaced(User previous, User current) {
+        idsByEmail.move(KeyIndex.foldCase(previous.getEmail()), KeyIndex.foldCase(current.getEmail()), current.getId());
+        idsByUsername.move(KeyIndex.foldCase(previous.getUsername()), KeyIndex.foldCase(current.getUsername()), current.getId());
+    }
+
+    @Override
+    protected void indexCleared() {
+        idsByEmail.clear();
+        idsByUsername.clear();
+    }
+
+    private User first(Iterable<String> ids) {
+        Iterator<String> it = ids.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        User user = peek(it.next());
+        return user != null ? copyOf(user) : null;
+    }
+}
@@ -1,21 +1,30 @@
 package com.rentalapp.dao;
 
+import com.rentalapp.dao.VehicleFacetIndex.PriceBucket;
+import com.rentalapp.dao.VehicleFacetIndex.PriceRange;
 import com.rentalapp.model.Vehicle;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.RecordCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -26,53 +35,63 @@ public class VehicleDAO {
     private static final Logger logger = LoggerFactory.getLogger(VehicleDAO.class);
     private static final String VEHICLES_FILE_PATH = "src/main/resources/data/vehicles.txt";
     
+    // Shared by every DAO instance so the file is parsed only once
+    private static final VehicleStore STORE = new VehicleStore(VehicleDAO::readVehiclesFile);
+    
+    // Daily-rate ranges offered in the search sidebar
+    private static final List<PriceBucket> PRICE_BUCKETS = Arrays.asList(
+            new PriceBucket("0-49.99", "Under $50"),
+            new PriceBucket("50-99.99", "$50 - $99.99"),
+            new PriceBucket("100-199.99", "$100 - $199.99"),
+            new PriceBucket("200-", "$200 and over"));
+    
+    // Vehicles without a daily rate sort last
+    private static final Comparator<Vehicle> BY_DAILY_RATE =
+            Comparator.comparing(Vehicle::getDailyRate, Comparator.nullsLast(Comparator.naturalOrder()));
+    
+    // Available vehicles first, then by daily rate
+    private static final Comparator<Vehicle> BY_AVAILABILITY_AND_DAILY_RATE =
+            Comparator.comparing((Vehicle v) -> !"available".equalsIgnoreCase(v.getStatus()))
+                    .thenComparing(BY_DAILY_RATE);
+    
+    private BookingDAO bookingDAO;
+    
+    /**
+     * Load the vehicles, with their search indexes, ahead of the first request
+     * 
+     * @return the number of records loaded
+     */
+    static int warmUp() {
+        return STORE.size();
+    }
+    
     /**
      * Default constructor
      */
     public VehicleDAO() {
-        // Initialize if needed
+        bookingDAO = new BookingDAO();
     }
     
     /**
      * Get all vehicles
      */
     public List<Vehicle> getAllVehicles() {
-        List<Vehicle> vehicles = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(VEHICLES_FILE_PATH))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    Vehicle vehicle = parseVehicleFromLine(line);
-                    if (vehicle != null) {
-                        vehicles.add(vehicle);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Error reading vehicles file", e);
-        }
-        
-        return vehicles;
+        return STORE.getAll();
     }
     
     /**
      * Get vehicle by ID
      */
     public Vehicle getById(String id) {
-        try {
-            List<Vehicle> vehicles = getAllVehicles();
-            
-            for (Vehicle vehicle : vehicles) {
-                if (vehicle.getId().equals(id)) {
-                    return vehicle;
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error getting vehicle by ID", e);
-        }
-        
-        return null;
+        return RequestIdentityMap.lookup(VEHICLES_FILE_PATH, id, () -> STORE.get(id));
+    }
+    
+    /**
+     * Get a copy of the stored vehicle, bypassing the request's identity map,
+     * for read-modify-write sequences that must start from the latest version
+     */
+    Vehicle getStoredVehicle(String id) {
+        return STORE.get(id);
     }
     
     /**
@@ -82,6 +101,13 @@ public class VehicleDAO {
         return getById(id);
     }
     
+    /**
+     * Get the vehicles with the given IDs in one lookup, keyed by ID (missing IDs are left out)
+     */
+    public Map<String, Vehicle> getVehiclesByIds(Collection<String> ids) {
+        return STORE.getByIds(ids);
+    }
+    
     /**
      * Get available vehicles
      */
@@ -91,6 +117,22 @@ public class VehicleDAO {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Get vehicles with no booking overlapping the given date range
+     */
+    public List<Vehicle> getVehiclesFreeBetween(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            return new ArrayList<>();
+        }
+        
+        List<Vehicle> vehicles = getAllVehicles();
+        Set<String> freeIds = new HashSet<>(bookingDAO.getFreeVehicleIds(
+                vehicles.stream().map(Vehicle::getId).collect(Collectors.toList()), startDate, endDate));
+        
+        vehicles.removeIf(v -> !freeIds.contains(v.getId()));
+        return vehicles;
+    }
+    
     /**
      * Get vehicles by type
      */
@@ -104,18 +146,18 @@ public class VehicleDAO {
      * Get vehicles sorted by price (ascending)
      */
     public List<Vehicle> getVehiclesSortedByPrice() {
-        List<Vehicle> vehicles = getAllVehicles();
-        selectionSortByPrice(vehicles);
-        return vehicles;
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setSortBy(VehicleSearchCriteria.SORT_PRICE);
+        return search(criteria).getVehicles();
     }
     
     /**
      * Get vehicles sorted by availability then price
      */
     public List<Vehicle> getVehiclesSortedByAvailabilityAndPrice() {
-        List<Vehicle> vehicles = getAllVehicles();
-        selectionSortByAvailabilityAndPrice(vehicles);
-        return vehicles;
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setSortBy(VehicleSearchCriteria.SORT_AVAILABILITY);
+        return search(criteria).getVehicles();
     }
     
     /**
@@ -123,15 +165,7 @@ public class VehicleDAO {
      */
     public List<Vehicle> sortByDailyRate(List<Vehicle> vehicles, boolean ascending) {
         List<Vehicle> sortedVehicles = new ArrayList<>(vehicles);
-        
-        if (ascending) {
-            selectionSortByPrice(sortedVehicles);
-        } else {
-            // Sort by price descending
-            selectionSortByPrice(sortedVehicles);
-            java.util.Collections.reverse(sortedVehicles);
-        }
-        
+        sortedVehicles.sort(ascending ? BY_DAILY_RATE : BY_DAILY_RATE.reversed());
         return sortedVehicles;
     }
     
@@ -140,7 +174,7 @@ public class VehicleDAO {
      */
     public List<Vehicle> sortByAvailability(List<Vehicle> vehicles) {
         List<Vehicle> sortedVehicles = new ArrayList<>(vehicles);
-        selectionSortByAvailabilityAndPrice(sortedVehicles);
+        sortedVehicles.sort(BY_AVAILABILITY_AND_DAILY_RATE);
         return sortedVehicles;
     }
     
@@ -148,77 +182,64 @@ public class VehicleDAO {
      * Search vehicles by criteria
      */
     public List<Vehicle> searchVehicles(String type, String make, String priceRange, boolean availableOnly) {
-        List<Vehicle> allVehicles = getAllVehicles();
-        List<Vehicle> filteredVehicles = new ArrayList<>();
-        
-        for (Vehicle vehicle : allVehicles) {
-            boolean typeMatch = type == null || type.isEmpty() || vehicle.getType().equalsIgnoreCase(type);
-            boolean makeMatch = make == null || make.isEmpty() || vehicle.getMake().equalsIgnoreCase(make);
-            boolean availabilityMatch = !availableOnly || "available".equalsIgnoreCase(vehicle.getStatus());
-            
-            // Parse price range if provided (format: "min-max" or "min-" or "-max")
-            boolean priceMatch = true;
-            if (priceRange != null && !priceRange.isEmpty()) {
-                String[] parts = priceRange.split("-");
-                try {
-                    if (parts.length == 2) {
-                        if (!parts[0].isEmpty()) {
-                            BigDecimal minPrice = new BigDecimal(parts[0]);
-                            if (vehicle.getDailyRate().compareTo(minPrice) < 0) {
-                                priceMatch = false;
-                            }
-                        }
-                        
-                        if (!parts[1].isEmpty()) {
-                            BigDecimal maxPrice = new BigDecimal(parts[1]);
-                            if (vehicle.getDailyRate().compareTo(maxPrice) > 0) {
-                                priceMatch = false;
-                            }
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    logger.error("Error parsing price range: " + priceRange, e);
-                }
-            }
-            
-            if (typeMatch && makeMatch && availabilityMatch && priceMatch) {
-                filteredVehicles.add(vehicle);
+        return search(type, make, null, priceRange, availableOnly).getVehicles();
+    }
+    
+    /**
+     * Search vehicles by criteria, with facet counts for the filter sidebar.
+     * Blank criteria match every vehicle.
+     * 
+     * @param model part of the model name (case-insensitive)
+     * @param priceRange daily-rate range as "min-max", "min-" or "-max" (inclusive)
+     */
+    public VehicleSearchResult search(String type, String make, String model, String priceRange, boolean availableOnly) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setType(type);
+        criteria.setMake(make);
+        criteria.setModel(model);
+        criteria.setPriceRange(priceRange);
+        criteria.setAvailableOnly(availableOnly);
+        return search(criteria);
+    }
+    
+    /**
+     * Search vehicles, returning one page of the matches in the requested
+     * order together with the total match count and the facet counts.
+     * The page is read off the maintained price order, so no list is sorted.
+     */
+    public VehicleSearchResult search(VehicleSearchCriteria criteria) {
+        PriceRange price = null;
+        String priceRange = criteria.getPriceRange();
+        if (priceRange != null && !priceRange.isEmpty()) {
+            try {
+                price = PriceRange.parse(priceRange);
+            } catch (NumberFormatException e) {
+                logger.error("Error parsing price range: " + priceRange, e);
             }
         }
         
-        return filteredVehicles;
+        // Keep only vehicles that are free for the whole requested period
+        Set<String> freeIds = null;
+        if (criteria.getFreeFrom() != null && criteria.getFreeUntil() != null) {
+            freeIds = new HashSet<>(bookingDAO.getFreeVehicleIds(
+                    STORE.ids(), criteria.getFreeFrom(), criteria.getFreeUntil()));
+        }
+        
+        return STORE.search(criteria, price, freeIds, PRICE_BUCKETS);
     }
     
     /**
      * Get all vehicle types
      */
     public List<String> getVehicleTypes() {
-        List<String> types = new ArrayList<>();
-        
-        for (Vehicle vehicle : getAllVehicles()) {
-            if (!types.contains(vehicle.getType())) {
-                types.add(vehicle.getType());
-            }
-        }
-        
-        java.util.Collections.sort(types);
-        return types;
+        return STORE.facetValues(VehicleFacetIndex.TYPE);
     }
     
     /**
      * Get all vehicle makes
      */
     public List<String> getVehicleMakes() {
-        List<String> makes = new ArrayList<>();
-        
-        for (Vehicle vehicle : getAllVehicles()) {
-            if (!makes.contains(vehicle.getMake())) {
-                makes.add(vehicle.getMake());
-            }
-        }
-        
-        java.util.Collections.sort(makes);
-        return makes;
+        return STORE.facetValues(VehicleFacetIndex.MAKE);
     }
     
     /**
@@ -226,155 +247,139 @@ public class VehicleDAO {
      */
     public boolean addVehicle(Vehicle vehicle) {
         if (vehicle.getId() == null || vehicle.getId().trim().isEmpty()) {
-            vehicle.setId(UUID.randomUUID().toString());
+            vehicle.setId(FileUtil.generateUniqueId());
         }
         
-        try {
-            String vehicleRecord = formatVehicleToLine(vehicle);
+        RequestIdentityMap.invalidate(VEHICLES_FILE_PATH);
+        boolean added = STORE.add(vehicle, v -> {
             Path path = Paths.get(VEHICLES_FILE_PATH);
-            Files.write(path, (vehicleRecord + System.lineSeparator()).getBytes(), 
-                    Files.exists(path) ? java.nio.file.StandardOpenOption.APPEND : java.nio.file.StandardOpenOption.CREATE);
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error adding vehicle", e);
-            return false;
+            Files.write(path, (formatVehicleToLine(v) + System.lineSeparator()).getBytes(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        });
+        if (added) {
+            DashboardStatistics.getInstance().vehicleAdded();
         }
+        return added;
     }
     
     /**
      * Update an existing vehicle
      */
     public boolean updateVehicle(Vehicle vehicle) {
-        try {
-            List<Vehicle> vehicles = getAllVehicles();
-            List<String> lines = new ArrayList<>();
-            
-            for (Vehicle existingVehicle : vehicles) {
-                if (existingVehicle.getId().equals(vehicle.getId())) {
-                    lines.add(formatVehicleToLine(vehicle));
-                } else {
-                    lines.add(formatVehicleToLine(existingVehicle));
-                }
-            }
-            
-            Files.write(Paths.get(VEHICLES_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error updating vehicle", e);
-            return false;
-        }
+        // The stored rating is kept (see updateRatings)
+        RequestIdentityMap.invalidate(VEHICLES_FILE_PATH);
+        return STORE.replace(vehicle, VehicleDAO::writeVehiclesFile);
+    }
+    
+    /**
+     * Update a vehicle only if nobody else has updated it since it was read
+     * 
+     * @param vehicle the changed vehicle, still carrying the version it was read at
+     * @return CONFLICT if the stored vehicle has moved on, in which case nothing is saved
+     */
+    public UpdateResult updateVehicleIfUnchanged(Vehicle vehicle) {
+        RequestIdentityMap.invalidate(VEHICLES_FILE_PATH);
+        return STORE.replaceIfUnchanged(vehicle, VehicleDAO::writeVehiclesFile);
+    }
+    
+    /**
+     * Set the average rating and review count of several vehicles with one
+     * rewrite of the data file. Vehicles that no longer exist are skipped.
+     * 
+     * @param ratings the ratings to store, by vehicle id
+     * @return false if the file could not be written
+     */
+    boolean updateRatings(Map<String, RatingSummary> ratings) {
+        RequestIdentityMap.invalidate(VEHICLES_FILE_PATH);
+        return STORE.updateAll(ratings.keySet(), vehicle -> {
+            RatingSummary rating = ratings.get(vehicle.getId());
+            vehicle.setAvgRating(rating.getAverage());
+            vehicle.setReviewCount(rating.getCount());
+        }, VehicleDAO::writeVehiclesFile);
     }
     
     /**
      * Delete a vehicle by ID
      */
     public boolean deleteVehicle(String vehicleId) {
-        try {
-            List<Vehicle> vehicles = getAllVehicles();
-            List<String> lines = new ArrayList<>();
-            
-            for (Vehicle vehicle : vehicles) {
-                if (!vehicle.getId().equals(vehicleId)) {
-                    lines.add(formatVehicleToLine(vehicle));
-                }
-            }
-            
-            Files.write(Paths.get(VEHICLES_FILE_PATH), String.join(System.lineSeparator(), lines).getBytes());
-            
-            return true;
-        } catch (IOException e) {
-            logger.error("Error deleting vehicle", e);
-            return false;
+        RequestIdentityMap.invalidate(VEHICLES_FILE_PATH);
+        boolean removed = STORE.remove(vehicleId, VehicleDAO::writeVehiclesFile);
+        if (removed) {
+            DashboardStatistics.getInstance().vehicleRemoved();
         }
+        return removed;
     }
     
     /**
-     * Selection sort implementation for sorting vehicles by price
+     * Read every vehicle from the data file
      */
-    private void selectionSortByPrice(List<Vehicle> vehicles) {
-        int n = vehicles.size();
+    private static List<Vehicle> readVehiclesFile() {
+        List<Vehicle> vehicles = new ArrayList<>();
+        RecordCodec record = new RecordCodec();
         
-        for (int i = 0; i < n - 1; i++) {
-            int minIdx = i;
-            
-            for (int j = i + 1; j < n; j++) {
-                if (vehicles.get(j).getDailyRate().compareTo(vehicles.get(minIdx).getDailyRate()) < 0) {
-                    minIdx = j;
+        try (BufferedReader reader = new BufferedReader(new FileReader(VEHICLES_FILE_PATH))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    Vehicle vehicle = parseVehicleFromLine(line, record);
+                    if (vehicle != null) {
+                        vehicles.add(vehicle);
+                    }
                 }
             }
-            
-            // Swap the found minimum element with the first element
-            Vehicle temp = vehicles.get(minIdx);
-            vehicles.set(minIdx, vehicles.get(i));
-            vehicles.set(i, temp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading vehicles file", e);
         }
+        
+        return vehicles;
     }
     
     /**
-     * Selection sort implementation for sorting vehicles by availability and then price
+     * Rewrite the data file with the given vehicles
      */
-    private void selectionSortByAvailabilityAndPrice(List<Vehicle> vehicles) {
-        int n = vehicles.size();
-        
-        for (int i = 0; i < n - 1; i++) {
-            int minIdx = i;
-            
-            for (int j = i + 1; j < n; j++) {
-                // First, compare by availability (available vehicles first)
-                boolean jIsAvailable = "available".equalsIgnoreCase(vehicles.get(j).getStatus());
-                boolean minIdxIsAvailable = "available".equalsIgnoreCase(vehicles.get(minIdx).getStatus());
-                
-                if (jIsAvailable && !minIdxIsAvailable) {
-                    minIdx = j;
-                } else if (jIsAvailable == minIdxIsAvailable) {
-                    // If availability is the same, compare by price
-                    if (vehicles.get(j).getDailyRate().compareTo(vehicles.get(minIdx).getDailyRate()) < 0) {
-                        minIdx = j;
-                    }
-                }
-            }
-            
-            // Swap the found minimum element with the first element
-            Vehicle temp = vehicles.get(minIdx);
-            vehicles.set(minIdx, vehicles.get(i));
-            vehicles.set(i, temp);
+    private static void writeVehiclesFile(Collection<Vehicle> vehicles) throws IOException {
+        List<String> lines = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            lines.add(formatVehicleToLine(vehicle));
         }
+        
+        FileUtil.replaceFile(Paths.get(VEHICLES_FILE_PATH), lines);
     }
     
     /**
      * Parse a vehicle from a line in the data file
      */
-    private Vehicle parseVehicleFromLine(String line) {
-        String[] parts = line.split("\\|");
+    private static Vehicle parseVehicleFromLine(String line, RecordCodec record) {
+        record.reset(line, RecordCodec.PIPE);
+        int fields = record.fieldCount();
         
-        if (parts.length >= 8) {
+        if (fields >= 8) {
             Vehicle vehicle = new Vehicle();
             
             try {
-                vehicle.setId(parts[0]);
-                vehicle.setName(parts[1]);
-                vehicle.setType(parts[2]);
-                vehicle.setMake(parts[3]);
-                vehicle.setModel(parts[4]);
-                vehicle.setYear(Integer.parseInt(parts[5]));
-                vehicle.setDailyRate(new BigDecimal(parts[6]));
-                vehicle.setStatus(parts[7]);
+                vehicle.setId(record.getString(0));
+                vehicle.setName(record.getString(1));
+                vehicle.setType(record.getString(2));
+                vehicle.setMake(record.getString(3));
+                vehicle.setModel(record.getString(4));
+                vehicle.setYear(record.getInt(5));
+                vehicle.setDailyRate(record.getDecimal(6));
+                vehicle.setStatus(record.getString(7));
                 
-                if (parts.length > 8) vehicle.setColor(parts[8]);
-                if (parts.length > 9) vehicle.setLicensePlate(parts[9]);
-                if (parts.length > 10) vehicle.setImageUrl(parts[10]);
-                if (parts.length > 11) vehicle.setDescription(parts[11]);
-                if (parts.length > 12 && !parts[12].isEmpty()) {
-                    List<String> features = Arrays.asList(parts[12].split(";"));
+                if (fields > 8) vehicle.setColor(record.getString(8));
+                if (fields > 9) vehicle.setLicensePlate(record.getString(9));
+                if (fields > 10) vehicle.setImageUrl(record.getString(10));
+                if (fields > 11) vehicle.setDescription(record.getString(11));
+                if (record.hasValue(12)) {
+                    List<String> features = Arrays.asList(record.getString(12).split(";"));
                     vehicle.setFeatures(features);
                 }
-                if (parts.length > 13) vehicle.setSeatingCapacity(Integer.parseInt(parts[13]));
-                if (parts.length > 14) vehicle.setFuelType(parts[14]);
-                if (parts.length > 15) vehicle.setTransmission(parts[15]);
-                if (parts.length > 16) vehicle.setAvgRating(Double.parseDouble(parts[16]));
-                if (parts.length > 17) vehicle.setReviewCount(Integer.parseInt(parts[17]));
+                if (fields > 13) vehicle.setSeatingCapacity(record.getInt(13));
+                if (fields > 14) vehicle.setFuelType(record.getString(14));
+                if (fields > 15) vehicle.setTransmission(record.getString(15));
+                if (fields > 16) vehicle.setAvgRating(record.getDouble(16));
+                if (fields > 17) vehicle.setReviewCount(record.getInt(17));
+                if (fields > 18) vehicle.setVersion(record.getLong(18));
                 
                 return vehicle;
             } catch (NumberFormatException e) {
@@ -388,7 +393,7 @@ public class VehicleDAO {
     /**
      * Format a vehicle as a line for the data file
      */
-    private String formatVehicleToLine(Vehicle vehicle) {
+    private static String formatVehicleToLine(Vehicle vehicle) {
         StringBuilder sb = new StringBuilder();
         
         // Essential fields
@@ -419,6 +424,7 @@ public class VehicleDAO {
         sb.append("|").append(vehicle.getTransmission() != null ? vehicle.getTransmission() : "");
         sb.append("|").append(vehicle.getAvgRating());
         sb.append("|").append(vehicle.getReviewCount());
+        sb.append("|").append(vehicle.getVersion());
         
         return sb.toString();
     }
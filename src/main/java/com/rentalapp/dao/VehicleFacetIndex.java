@@ -0,0 +1,458 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Vehicle;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bitmap indexes over the vehicles for faceted search.
+ * <p>
+ * Every vehicle is given a slot number. Each type, make and status value keeps
+ * a bitset of the slots that have it, and the slots are also kept in daily-rate
+ * order, so a query is a few bitset ANDs plus two binary searches for the price
+ * range. Facet counts are the cardinalities of the same intersections, and a
+ * sorted page is read off the price order rather than sorted. Values
+ * are matched case-insensitively; the spelling first indexed is shown. Not
+ * thread-safe; the owning store calls it under its own lock.
+ */
+class VehicleFacetIndex {
+
+    // Facet names
+    static final String TYPE = "type";
+    static final String MAKE = "make";
+    static final String STATUS = "status";
+
+    /**
+     * Inclusive daily-rate range; either end may be open (null)
+     */
+    static final class PriceRange {
+        final BigDecimal min;
+        final BigDecimal max;
+
+        PriceRange(BigDecimal min, BigDecimal max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Parse "min-max", "min-" or "-max"
+         *
+         * @throws NumberFormatException if either bound is not a number
+         */
+        static PriceRange parse(String range) {
+            String[] parts = range.split("-", -1);
+            if (parts.length != 2) {
+                return new PriceRange(null, null);
+            }
+            return new PriceRange(parts[0].isEmpty() ? null : new BigDecimal(parts[0]),
+                    parts[1].isEmpty() ? null : new BigDecimal(parts[1]));
+        }
+    }
+
+    /**
+     * A price range offered as a facet, with its request value and display label
+     */
+    static final class PriceBucket {
+        final String value;
+        final String label;
+        final PriceRange range;
+
+        PriceBucket(String value, String label) {
+            this.value = value;
+            this.label = label;
+            this.range = PriceRange.parse(value);
+        }
+    }
+
+    /**
+     * Slots that share one facet value
+     */
+    private static final class Facet {
+        final String label;
+        final BitSet slots = new BitSet();
+
+        Facet(String label) {
+            this.label = label;
+        }
+    }
+
+    // Dead slots are compacted away once there are more of them than this and than live ones
+    private static final int MIN_DEAD_SLOTS_TO_COMPACT = 64;
+
+    private final List<Vehicle> vehiclesBySlot = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final BitSet live = new BitSet();
+
+    // Facets keyed by upper-case value, so they list in sorted order
+    private final Map<String, Facet> types = new TreeMap<>();
+    private final Map<String, Facet> makes = new TreeMap<>();
+    private final Map<String, Facet> statuses = new TreeMap<>();
+
+    // Live slots with a daily rate, in ascending rate order, and their rates
+    private int[] slotsByPrice = new int[0];
+    private BigDecimal[] sortedPrices = new BigDecimal[0];
+    private int priced;
+    
+    // Live slots without a daily rate; they sort after all the others
+    private final BitSet unpriced = new BitSet();
+
+    void add(Vehicle vehicle) {
+        // Slots are never reused, so slot order stays the order vehicles were added;
+        // removed vehicles leave dead slots until the next compaction
+        int slot = vehiclesBySlot.size();
+        vehiclesBySlot.add(vehicle);
+        live.set(slot);
+        slotById.put(vehicle.getId(), slot);
+        addKeys(vehicle, slot);
+    }
+
+    void remove(Vehicle vehicle) {
+        Integer slot = slotById.remove(vehicle.getId());
+        if (slot == null) {
+            return;
+        }
+        removeKeys(vehicle, slot);
+        vehiclesBySlot.set(slot, null);
+        live.clear(slot);
+
+        int dead = vehiclesBySlot.size() - slotById.size();
+        if (dead > MIN_DEAD_SLOTS_TO_COMPACT && dead > slotById.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Re-index a changed vehicle in its existing slot
+     */
+    void replace(Vehicle previous, Vehicle current) {
+        Integer slot = slotById.get(previous.getId());
+        if (slot == null) {
+            add(current);
+            return;
+        }
+        removeKeys(previous, slot);
+        vehiclesBySlot.set(slot, current);
+        addKeys(current, slot);
+    }
+
+    void clear() {
+        vehiclesBySlot.clear();
+        slotById.clear();
+        live.clear();
+        types.clear();
+        makes.clear();
+        statuses.clear();
+        slotsByPrice = new int[0];
+        sortedPrices = new BigDecimal[0];
+        priced = 0;
+        unpriced.clear();
+    }
+
+    /**
+     * Re-index the live vehicles into consecutive slots, keeping their order.
+     * Slots handed out earlier are no longer valid afterwards.
+     */
+    private void compact() {
+        List<Vehicle> vehicles = new ArrayList<>(slotById.size());
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            vehicles.add(vehiclesBySlot.get(slot));
+        }
+        clear();
+        for (Vehicle vehicle : vehicles) {
+            add(vehicle);
+        }
+    }
+
+    /**
+     * Slots having the value (case-insensitive), or every live slot for a blank value
+     */
+    BitSet matching(String facet, String value) {
+        if (value == null || value.isEmpty()) {
+            return (BitSet) live.clone();
+        }
+        Facet match = facets(facet).get(key(value));
+        return match != null ? (BitSet) match.slots.clone() : new BitSet();
+    }
+
+    /**
+     * Slots whose daily rate falls in the range, or every live slot for no range
+     */
+    BitSet inPriceRange(PriceRange range) {
+        if (range == null || (range.min == null && range.max == null)) {
+            return (BitSet) live.clone();
+        }
+        int from = range.min != null ? lowerBound(range.min) : 0;
+        int to = range.max != null ? upperBound(range.max) : priced;
+        BitSet slots = new BitSet();
+        for (int i = from; i < to; i++) {
+            slots.set(slotsByPrice[i]);
+        }
+        return slots;
+    }
+
+    /**
+     * Slots of the vehicles with the given ids
+     */
+    BitSet slotsOf(Collection<String> ids) {
+        BitSet slots = new BitSet();
+        for (String id : ids) {
+            Integer slot = slotById.get(id);
+            if (slot != null) {
+                slots.set(slot);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Pick one page of the matching slots in sort order. The walk follows the
+     * maintained price order and stops as soon as the page is full, so nothing
+     * is sorted per query.
+     *
+     * @param sortBy {@link VehicleSearchCriteria#SORT_PRICE}, {@link VehicleSearchCriteria#SORT_AVAILABILITY},
+     *               or anything else for slot order
+     * @return the slots of the page, in order
+     */
+    List<Integer> page(BitSet matches, String sortBy, boolean ascending, int offset, int limit) {
+        Page page = new Page(offset, limit);
+        if (VehicleSearchCriteria.SORT_PRICE.equals(sortBy)) {
+            collectByPrice(matches, ascending, page);
+        } else if (VehicleSearchCriteria.SORT_AVAILABILITY.equals(sortBy)) {
+            BitSet available = matching(STATUS, "available");
+            available.and(matches);
+            BitSet others = (BitSet) matches.clone();
+            others.andNot(available);
+            collectByPrice(available, true, page);
+            collectByPrice(others, true, page);
+        } else {
+            for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+                if (!page.offer(slot)) {
+                    break;
+                }
+            }
+        }
+        return page.slots;
+    }
+
+    /**
+     * Pick one page of the matching slots in the order of the given ids
+     */
+    List<Integer> pageInOrder(List<String> ids, BitSet matches, int offset, int limit) {
+        Page page = new Page(offset, limit);
+        for (String id : ids) {
+            Integer slot = slotById.get(id);
+            if (slot != null && matches.get(slot) && !page.offer(slot)) {
+                break;
+            }
+        }
+        return page.slots;
+    }
+
+    /**
+     * Count, for each value of a facet, how many of the given slots have it
+     *
+     * @return label to count for every value, in value order
+     */
+    Map<String, Integer> countBy(String facet, BitSet within) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Facet value : facets(facet).values()) {
+            BitSet both = (BitSet) value.slots.clone();
+            both.and(within);
+            counts.put(value.label, both.cardinality());
+        }
+        return counts;
+    }
+
+    /**
+     * Labels of every value of a facet, in sorted order
+     */
+    List<String> labels(String facet) {
+        List<String> labels = new ArrayList<>();
+        for (Facet value : facets(facet).values()) {
+            labels.add(value.label);
+        }
+        return labels;
+    }
+
+    /**
+     * The stored vehicle in a slot (not a copy)
+     */
+    Vehicle vehicleAt(int slot) {
+        return vehiclesBySlot.get(slot);
+    }
+
+    /**
+     * Offer the slots within a set in price order (unpriced ones last) until the page is full
+     */
+    private void collectByPrice(BitSet within, boolean ascending, Page page) {
+        for (int i = 0; i < priced; i++) {
+            int slot = slotsByPrice[ascending ? i : priced - 1 - i];
+            if (within.get(slot) && !page.offer(slot)) {
+                return;
+            }
+        }
+        for (int slot = unpriced.nextSetBit(0); slot >= 0; slot = unpriced.nextSetBit(slot + 1)) {
+            if (within.get(slot) && !page.offer(slot)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collects the slots offered after skipping the first offset, up to limit
+     */
+    private static final class Page {
+        final List<Integer> slots = new ArrayList<>();
+        int toSkip;
+        final int limit;
+
+        Page(int offset, int limit) {
+            this.toSkip = offset;
+            this.limit = limit;
+        }
+
+        /**
+         * @return false once the page is full
+         */
+        boolean offer(int slot) {
+            if (slots.size() >= limit) {
+                return false;
+            }
+            if (toSkip > 0) {
+                toSkip--;
+            } else {
+                slots.add(slot);
+            }
+            return slots.size() < limit;
+        }
+    }
+
+    private void addKeys(Vehicle vehicle, int slot) {
+        addTo(types, vehicle.getType(), slot);
+        addTo(makes, vehicle.getMake(), slot);
+        addTo(statuses, vehicle.getStatus(), slot);
+        if (vehicle.getDailyRate() != null) {
+            insertPrice(slot, vehicle.getDailyRate());
+        } else {
+            unpriced.set(slot);
+        }
+    }
+
+    private void removeKeys(Vehicle vehicle, int slot) {
+        removeFrom(types, vehicle.getType(), slot);
+        removeFrom(makes, vehicle.getMake(), slot);
+        removeFrom(statuses, vehicle.getStatus(), slot);
+        if (vehicle.getDailyRate() != null) {
+            removePrice(slot, vehicle.getDailyRate());
+        } else {
+            unpriced.clear(slot);
+        }
+    }
+
+    private Map<String, Facet> facets(String facet) {
+        switch (facet) {
+            case TYPE:
+                return types;
+            case MAKE:
+                return makes;
+            case STATUS:
+                return statuses;
+            default:
+                throw new IllegalArgumentException("Unknown facet: " + facet);
+        }
+    }
+
+    private static void addTo(Map<String, Facet> facets, String value, int slot) {
+        if (value != null) {
+            facets.computeIfAbsent(key(value), k -> new Facet(value)).slots.set(slot);
+        }
+    }
+
+    private static void removeFrom(Map<String, Facet> facets, String value, int slot) {
+        if (value == null) {
+            return;
+        }
+        Facet facet = facets.get(key(value));
+        if (facet != null) {
+            facet.slots.clear(slot);
+            if (facet.slots.isEmpty()) {
+                facets.remove(key(value));
+            }
+        }
+    }
+
+    private static String key(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    private void insertPrice(int slot, BigDecimal price) {
+        if (priced == slotsByPrice.length) {
+            int capacity = Math.max(16, priced * 2);
+            slotsByPrice = Arrays.copyOf(slotsByPrice, capacity);
+            sortedPrices = Arrays.copyOf(sortedPrices, capacity);
+        }
+        // After any equal prices, so ties keep insertion order
+        int at = upperBound(price);
+        System.arraycopy(slotsByPrice, at, slotsByPrice, at + 1, priced - at);
+        System.arraycopy(sortedPrices, at, sortedPrices, at + 1, priced - at);
+        slotsByPrice[at] = slot;
+        sortedPrices[at] = price;
+        priced++;
+    }
+
+    private void removePrice(int slot, BigDecimal price) {
+        for (int i = lowerBound(price); i < priced && sortedPrices[i].compareTo(price) == 0; i++) {
+            if (slotsByPrice[i] == slot) {
+                System.arraycopy(slotsByPrice, i + 1, slotsByPrice, i, priced - i - 1);
+                System.arraycopy(sortedPrices, i + 1, sortedPrices, i, priced - i - 1);
+                priced--;
+                sortedPrices[priced] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * First position whose price is not below the given one
+     */
+    private int lowerBound(BigDecimal price) {
+        int low = 0;
+        int high = priced;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid].compareTo(price) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position whose price is above the given one
+     */
+    private int upperBound(BigDecimal price) {
+        int low = 0;
+        int high = priced;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid].compareTo(price) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
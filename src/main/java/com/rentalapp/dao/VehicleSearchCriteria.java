@@ -0,0 +1,143 @@
+package com.rentalapp.dao;
+
+import java.time.LocalDate;
+
+/**
+ * Filters, sort order and page for a vehicle search. Unset (null or blank)
+ * filters match every vehicle.
+ */
+public class VehicleSearchCriteria {
+
+    /** Sort by daily rate */
+    public static final String SORT_PRICE = "price";
+
+    /** Sort available vehicles first, then by daily rate */
+    public static final String SORT_AVAILABILITY = "availability";
+
+    private String query;
+    private String type;
+    private String make;
+    private String model;
+    private String priceRange;
+    private boolean availableOnly;
+    private LocalDate freeFrom;
+    private LocalDate freeUntil;
+    private String sortBy;
+    private boolean ascending = true;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Keywords to find in the name, model, description and features; every
+     * word must match, either whole or as the start of a word. Without an
+     * explicit sort the best matches come first.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public void setMake(String make) {
+        this.make = make;
+    }
+
+    /**
+     * Part of the model name (case-insensitive)
+     */
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    /**
+     * Daily-rate range as "min-max", "min-" or "-max" (inclusive)
+     */
+    public String getPriceRange() {
+        return priceRange;
+    }
+
+    public void setPriceRange(String priceRange) {
+        this.priceRange = priceRange;
+    }
+
+    public boolean isAvailableOnly() {
+        return availableOnly;
+    }
+
+    public void setAvailableOnly(boolean availableOnly) {
+        this.availableOnly = availableOnly;
+    }
+
+    public LocalDate getFreeFrom() {
+        return freeFrom;
+    }
+
+    public LocalDate getFreeUntil() {
+        return freeUntil;
+    }
+
+    /**
+     * Only match vehicles with no booking overlapping the date range
+     */
+    public void setFreeBetween(LocalDate freeFrom, LocalDate freeUntil) {
+        this.freeFrom = freeFrom;
+        this.freeUntil = freeUntil;
+    }
+
+    /**
+     * {@link #SORT_PRICE}, {@link #SORT_AVAILABILITY}, or null for file order
+     * (relevance order when there is a query)
+     */
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public void setSortBy(String sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    /**
+     * Direction of the price sort (the availability sort is always ascending)
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public void setAscending(boolean ascending) {
+        this.ascending = ascending;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Return at most limit matches, skipping the first offset in sort order
+     */
+    public void setPage(int offset, int limit) {
+        this.offset = Math.max(0, offset);
+        this.limit = Math.max(0, limit);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
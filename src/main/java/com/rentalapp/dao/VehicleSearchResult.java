@@ -0,0 +1,86 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.model.Vehicle;
+
+import java.util.List;
+
+/**
+ * One page of the vehicles matching a faceted search, with the counts for the
+ * filter sidebar.
+ * <p>
+ * Each facet is counted with every other filter applied but not its own, so
+ * the counts show how many vehicles picking that value instead would give.
+ */
+public class VehicleSearchResult {
+
+    /**
+     * One value of a facet and the number of vehicles it would match
+     */
+    public static class FacetCount {
+        private final String value;
+        private final String label;
+        private final int count;
+
+        public FacetCount(String value, String label, int count) {
+            this.value = value;
+            this.label = label;
+            this.count = count;
+        }
+
+        /**
+         * The request parameter value that selects this facet value
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private final List<Vehicle> vehicles;
+    private final int totalCount;
+    private final List<FacetCount> typeCounts;
+    private final List<FacetCount> makeCounts;
+    private final List<FacetCount> priceCounts;
+
+    public VehicleSearchResult(List<Vehicle> vehicles, int totalCount, List<FacetCount> typeCounts,
+                               List<FacetCount> makeCounts, List<FacetCount> priceCounts) {
+        this.vehicles = vehicles;
+        this.totalCount = totalCount;
+        this.typeCounts = typeCounts;
+        this.makeCounts = makeCounts;
+        this.priceCounts = priceCounts;
+    }
+
+    /**
+     * The requested page of matches
+     */
+    public List<Vehicle> getVehicles() {
+        return vehicles;
+    }
+
+    /**
+     * Number of matches across all pages
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public List<FacetCount> getTypeCounts() {
+        return typeCounts;
+    }
+
+    public List<FacetCount> getMakeCounts() {
+        return makeCounts;
+    }
+
+    public List<FacetCount> getPriceCounts() {
+        return priceCounts;
+    }
+}
@@ -0,0 +1,188 @@
+package com.rentalapp.dao;
+
+import com.rentalapp.dao.VehicleFacetIndex.PriceBucket;
+import com.rentalapp.dao.VehicleFacetIndex.PriceRange;
+import com.rentalapp.dao.VehicleSearchResult.FacetCount;
+import com.rentalapp.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Shared in-memory copy of vehicles.txt, indexed by vehicle id, by the
+ * type, make, status and daily rate facets, and by the words of its text fields
+ */
+class VehicleStore extends EntityStore<Vehicle> {
+
+    private final Supplier<List<Vehicle>> loader;
+
+    private final VehicleFacetIndex facets = new VehicleFacetIndex();
+
+    // Name, model, description and features of every vehicle
+    private final InvertedIndex text = new InvertedIndex();
+
+    VehicleStore(Supplier<List<Vehicle>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Find one page of the vehicles matching every filter of the criteria
+     *
+     * @param price the parsed daily-rate range, or null
+     * @param restrictTo IDs outside of which nothing matches, or null
+     * @param priceBuckets the price ranges to count
+     * @return copies of the page in sort order, with the facet counts
+     */
+    VehicleSearchResult search(VehicleSearchCriteria criteria, PriceRange price, Set<String> restrictTo,
+                               List<PriceBucket> priceBuckets) {
+        String model = criteria.getModel();
+        String query = criteria.getQuery();
+        boolean hasQuery = !InvertedIndex.tokenize(query).isEmpty();
+        return read(() -> {
+            BitSet byType = facets.matching(VehicleFacetIndex.TYPE, criteria.getType());
+            BitSet byMake = facets.matching(VehicleFacetIndex.MAKE, criteria.getMake());
+            BitSet byPrice = facets.inPriceRange(price);
+
+            // Filters that are not facets narrow every count
+            BitSet common = facets.matching(VehicleFacetIndex.STATUS, criteria.isAvailableOnly() ? "available" : null);
+            if (restrictTo != null) {
+                common.and(facets.slotsOf(restrictTo));
+            }
+            List<String> ranked = null;
+            if (hasQuery) {
+                ranked = text.search(query, Integer.MAX_VALUE);
+                common.and(facets.slotsOf(ranked));
+            }
+            if (model != null && !model.isEmpty()) {
+                String part = model.toLowerCase(Locale.ROOT);
+                for (int slot = common.nextSetBit(0); slot >= 0; slot = common.nextSetBit(slot + 1)) {
+                    String vehicleModel = facets.vehicleAt(slot).getModel();
+                    if (vehicleModel == null || !vehicleModel.toLowerCase(Locale.ROOT).contains(part)) {
+                        common.clear(slot);
+                    }
+                }
+            }
+
+            BitSet matches = and(byType, byMake, byPrice, common);
+            // Keyword searches without an explicit sort list the best matches first
+            List<Integer> page = ranked != null && criteria.getSortBy() == null
+                    ? facets.pageInOrder(ranked, matches, criteria.getOffset(), criteria.getLimit())
+                    : facets.page(matches, criteria.getSortBy(), criteria.isAscending(), criteria.getOffset(), criteria.getLimit());
+            List<Vehicle> vehicles = new ArrayList<>();
+            for (int slot : page) {
+                vehicles.add(copyOf(facets.vehicleAt(slot)));
+            }
+
+            List<FacetCount> typeCounts = new ArrayList<>();
+            facets.countBy(VehicleFacetIndex.TYPE, and(byMake, byPrice, common))
+                    .forEach((label, count) -> typeCounts.add(new FacetCount(label, label, count)));
+
+            List<FacetCount> makeCounts = new ArrayList<>();
+            facets.countBy(VehicleFacetIndex.MAKE, and(byType, byPrice, common))
+                    .forEach((label, count) -> makeCounts.add(new FacetCount(label, label, count)));
+
+            List<FacetCount> priceCounts = new ArrayList<>();
+            BitSet withoutPrice = and(byType, byMake, common);
+            for (PriceBucket bucket : priceBuckets) {
+                BitSet inBucket = facets.inPriceRange(bucket.range);
+                inBucket.and(withoutPrice);
+                priceCounts.add(new FacetCount(bucket.value, bucket.label, inBucket.cardinality()));
+            }
+
+            return new VehicleSearchResult(vehicles, matches.cardinality(), typeCounts, makeCounts, priceCounts);
+        });
+    }
+
+    /**
+     * IDs of every vehicle, in file order
+     */
+    List<String> ids() {
+        return read(() -> {
+            List<String> ids = new ArrayList<>();
+            for (Vehicle vehicle : values()) {
+                ids.add(vehicle.getId());
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Every distinct type or make, in sorted order
+     */
+    List<String> facetValues(String facet) {
+        return read(() -> facets.labels(facet));
+    }
+
+    @Override
+    protected List<Vehicle> loadAll() {
+        return loader.get();
+    }
+
+    @Override
+    protected String idOf(Vehicle vehicle) {
+        return vehicle.getId();
+    }
+
+    @Override
+    protected Vehicle copyOf(Vehicle vehicle) {
+        return new Vehicle(vehicle);
+    }
+
+    @Override
+    protected long versionOf(Vehicle vehicle) {
+        return vehicle.getVersion();
+    }
+
+    @Override
+    protected void setVersion(Vehicle vehicle, long version) {
+        vehicle.setVersion(version);
+    }
+
+    @Override
+    protected void carryOver(Vehicle previous, Vehicle replacement) {
+        // The rating belongs to the reviews (see VehicleDAO.updateRatings), not to the edit form
+        replacement.setAvgRating(previous.getAvgRating());
+        replacement.setReviewCount(previous.getReviewCount());
+    }
+
+    @Override
+    protected void indexAdded(Vehicle vehicle) {
+        facets.add(vehicle);
+        indexText(vehicle);
+    }
+
+    @Override
+    protected void indexRemoved(Vehicle vehicle) {
+        facets.remove(vehicle);
+        text.remove(vehicle.getId());
+    }
+
+    @Override
+    protected void indexReplaced(Vehicle previous, Vehicle current) {
+        facets.replace(previous, current);
+        indexText(current);
+    }
+
+    @Override
+    protected void indexCleared() {
+        facets.clear();
+        text.clear();
+    }
+
+    private void indexText(Vehicle vehicle) {
+        String features = vehicle.getFeatures() != null ? String.join(" ", vehicle.getFeatures()) : null;
+        text.put(vehicle.getId(), vehicle.getName(), vehicle.getModel(), vehicle.getDescription(), features);
+    }
+
+    private static BitSet and(BitSet first, BitSet... others) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : others) {
+            result.and(other);
+        }
+        return result;
+    }
+}
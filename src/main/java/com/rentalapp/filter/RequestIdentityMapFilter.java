@@ -0,0 +1,43 @@
+package com.rentalapp.filter;
+
+import com.rentalapp.dao.RequestIdentityMap;
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Filter that gives each request its own identity map, so the DAOs parse
+ * each data file at most once per request and hand back the same entities
+ * when the same record is asked for again.
+ */
+public class RequestIdentityMapFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestIdentityMapFilter.class);
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Initialization code, if needed
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        
+        try (RequestIdentityMap identityMap = RequestIdentityMap.open()) {
+            chain.doFilter(request, response);
+            
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}: {} DAO reads served from the identity map, {} loaded",
+                        ((HttpServletRequest) request).getRequestURI(), identityMap.getHits(), identityMap.getMisses());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Cleanup code, if needed
+    }
+}
@@ -0,0 +1,53 @@
+package com.rentalapp.filter;
+
+import com.rentalapp.dao.DataWarmUp;
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter that holds requests until the startup warm-up has finished, so that
+ * the dashboard counters are seeded before any request can change the data.
+ * The readiness check is let through at once, since it reports the warm-up.
+ */
+public class WarmUpGateFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpGateFilter.class);
+
+    private static final long MAX_WAIT_SECONDS = 60;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Initialization code, if needed
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        
+        if (!"/ready".equals(path)) {
+            try {
+                if (!DataWarmUp.awaitFinished(MAX_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    logger.warn("Warm-up still running after {} s; serving {} anyway", MAX_WAIT_SECONDS, path);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted waiting for the warm-up", e);
+            }
+        }
+        
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+        // Cleanup code, if needed
+    }
+}
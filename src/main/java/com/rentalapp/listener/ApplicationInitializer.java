@@ -1,5 +1,11 @@
 package com.rentalapp.listener;
 
+import com.rentalapp.dao.BookingDAO;
+import com.rentalapp.dao.DataWarmUp;
+import com.rentalapp.dao.ReviewDAO;
+import com.rentalapp.util.FileUtil;
+import com.rentalapp.util.ParallelLoader;
+
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import org.slf4j.Logger;
@@ -40,6 +46,8 @@ public class ApplicationInitializer implements ServletContextListener {
             createDataFile(DATA_DIR, "vehicles.txt");
             createDataFile(DATA_DIR, "users.txt");
             createDataFile(DATA_DIR, "bookings.txt");
+            createDataFile(DATA_DIR, "bookings.log");
+            createDataFile(DATA_DIR, "booking-intents.log");
             createDataFile(DATA_DIR, "admins.txt");
             createDataFile(DATA_DIR, "payments.txt");
             createDataFile(DATA_DIR, "reviews.txt");
@@ -47,6 +55,23 @@ public class ApplicationInitializer implements ServletContextListener {
             // Initialize default admin account if no admins exist
             initializeDefaultAdmin();
             
+            // Settle bookings whose vehicle update was cut short by a crash
+            BookingDAO.recoverTransactions();
+            
+            // Fold booking log entries into the snapshot in the background
+            BookingDAO.startLogCompaction();
+            
+            // Copy changed review ratings onto the vehicle records in batches
+            ReviewDAO.startRatingFlush();
+            
+            // Pool for running independent data loads concurrently
+            ParallelLoader.start(Integer.getInteger("rentalapp.loaderThreads",
+                    Math.min(4, Runtime.getRuntime().availableProcessors())));
+            
+            // Load every data file, then the dashboard counters and existence filters, in the
+            // background; requests wait for it in WarmUpGateFilter, and /ready reports when it is done
+            DataWarmUp.start();
+            
             logger.info("Application initialization completed successfully");
         } catch (Exception e) {
             logger.error("Failed to initialize application", e);
@@ -59,6 +84,11 @@ public class ApplicationInitializer implements ServletContextListener {
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
         logger.info("Shutting down Vehicle Rental Application...");
+        
+        BookingDAO.stopLogCompaction();
+        ReviewDAO.stopRatingFlush();
+        ParallelLoader.shutdown();
+        FileUtil.shutdownAppenders();
     }
     
     /**
@@ -29,6 +29,13 @@ public class Admin {
         this.role = role;
     }
     
+    /**
+     * Copy constructor
+     */
+    public Admin(Admin other) {
+        this(other.id, other.username, other.password, other.fullName, other.email, other.role);
+    }
+    
     // Getters and Setters
     
     public String getId() {
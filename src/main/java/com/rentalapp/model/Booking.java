@@ -1,5 +1,7 @@
 package com.rentalapp.model;
 
+import com.rentalapp.util.RecordCodec;
+
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -21,6 +23,7 @@ public class Booking implements Serializable {
     private BigDecimal totalCost;
     private String status;  // PENDING, CONFIRMED, CANCELLED, COMPLETED
     private LocalDate bookingDate;
+    private long version;
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
@@ -44,6 +47,13 @@ public class Booking implements Serializable {
         this.bookingDate = bookingDate;
     }
     
+    // Copy constructor
+    public Booking(Booking other) {
+        this(other.id, other.userId, other.vehicleId, other.startDate, other.endDate,
+             other.totalCost, other.status, other.bookingDate);
+        this.version = other.version;
+    }
+    
     // Legacy constructor for backward compatibility
     public Booking(String id, String userId, String vehicleId, LocalDate startDate, 
                    LocalDate endDate, double totalCost, String status, LocalDate bookingDate) {
@@ -120,6 +130,18 @@ public class Booking implements Serializable {
     public void setBookingDate(LocalDate bookingDate) {
         this.bookingDate = bookingDate;
     }
+
+    /**
+     * Number of times this record has been updated; an update made against an
+     * older version is rejected as a conflict
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
     // Calculate the rental duration in days
     public long getRentalDuration() {
@@ -142,26 +164,35 @@ public class Booking implements Serializable {
                startDate.format(DATE_FORMATTER) + "," + 
                endDate.format(DATE_FORMATTER) + "," + 
                totalCost + "," + status + "," + 
-               bookingDate.format(DATE_FORMATTER);
+               bookingDate.format(DATE_FORMATTER) + "," + version;
     }
     
     // Used for CSV-like storage
     public static Booking fromString(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 8) {
+        return fromRecord(new RecordCodec().reset(line, RecordCodec.COMMA));
+    }
+    
+    // Build from an already tokenized line, so bulk loaders can reuse one codec
+    public static Booking fromRecord(RecordCodec record) {
+        if (record.fieldCount() < 8) {
             throw new IllegalArgumentException("Invalid booking data format");
         }
         
-        return new Booking(
-            parts[0],
-            parts[1],
-            parts[2],
-            LocalDate.parse(parts[3], DATE_FORMATTER),
-            LocalDate.parse(parts[4], DATE_FORMATTER),
-            new BigDecimal(parts[5]),
-            parts[6],
-            LocalDate.parse(parts[7], DATE_FORMATTER)
+        Booking booking = new Booking(
+            record.getString(0),
+            record.getString(1),
+            record.getString(2),
+            record.getDate(3),
+            record.getDate(4),
+            record.getDecimal(5),
+            record.getString(6),
+            record.getDate(7)
         );
+        // Bookings written before versions were stored start at 0
+        if (record.hasValue(8)) {
+            booking.setVersion(record.getLong(8));
+        }
+        return booking;
     }
     
     @Override
@@ -19,6 +19,7 @@ public class Payment {
     private String notes;
     private String adminId; // ID of the admin who processed the payment
     private LocalDateTime processedDate;
+    private long version;
     
     /**
      * Default constructor
@@ -43,6 +44,18 @@ public class Payment {
         this.status = status;
     }
     
+    /**
+     * Copy constructor
+     */
+    public Payment(Payment other) {
+        this(other.id, other.bookingId, other.userId, other.amount,
+             other.paymentMethod, other.slipImagePath, other.paymentDate, other.status);
+        this.notes = other.notes;
+        this.adminId = other.adminId;
+        this.processedDate = other.processedDate;
+        this.version = other.version;
+    }
+    
     // Getters and Setters
     public String getId() {
         return id;
@@ -131,6 +144,18 @@ public class Payment {
     public void setProcessedDate(LocalDateTime processedDate) {
         this.processedDate = processedDate;
     }
+
+    /**
+     * Number of times this record has been updated; an update made against an
+     * older version is rejected as a conflict
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
     /**
      * Check if the payment is pending
@@ -53,6 +53,13 @@ public class Review {
         this.verified = verified;
     }
     
+    // Copy constructor
+    public Review(Review other) {
+        this(other.id, other.userId, other.userName, other.vehicleId, other.vehicleName,
+             other.bookingId, other.rating, other.comment,
+             other.reviewDate != null ? new Date(other.reviewDate.getTime()) : null, other.verified);
+    }
+    
     // Getters and Setters
     
     public String getId() {
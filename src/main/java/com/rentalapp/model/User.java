@@ -1,5 +1,7 @@
 package com.rentalapp.model;
 
+import com.rentalapp.util.RecordCodec;
+
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -25,6 +27,7 @@ public class User implements Serializable {
     private LocalDate dateOfBirth;
     private String licenseNumber;
     private String profilePicture;
+    private long version;
     
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
@@ -49,6 +52,18 @@ public class User implements Serializable {
         this.registrationDate = registrationDate;
     }
     
+    // Copy constructor
+    public User(User other) {
+        this(other.id, other.username, other.password, other.fullName,
+             other.email, other.phone, other.address, other.role, other.registrationDate);
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.dateOfBirth = other.dateOfBirth;
+        this.licenseNumber = other.licenseNumber;
+        this.profilePicture = other.profilePicture;
+        this.version = other.version;
+    }
+    
     // Getters and setters
     public String getId() {
         return id;
@@ -163,6 +178,18 @@ public class User implements Serializable {
     public void setProfilePicture(String profilePicture) {
         this.profilePicture = profilePicture;
     }
+
+    /**
+     * Number of times this record has been updated; an update made against an
+     * older version is rejected as a conflict
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
     // Helper method to update fullName when first or last name changes
     private void updateFullName() {
@@ -194,21 +221,25 @@ public class User implements Serializable {
     
     // Used for CSV-like storage
     public static User fromString(String line) {
-        String[] parts = line.split(",");
-        if (parts.length < 9) {
+        return fromRecord(new RecordCodec().reset(line, RecordCodec.COMMA));
+    }
+    
+    // Build from an already tokenized line, so bulk loaders can reuse one codec
+    public static User fromRecord(RecordCodec record) {
+        if (record.fieldCount() < 9) {
             throw new IllegalArgumentException("Invalid user data format");
         }
         
         return new User(
-            parts[0],
-            parts[1],
-            parts[2],
-            parts[3],
-            parts[4],
-            parts[5],
-            parts[6],
-            parts[7],
-            LocalDate.parse(parts[8], DATE_FORMATTER)
+            record.getString(0),
+            record.getString(1),
+            record.getString(2),
+            record.getString(3),
+            record.getString(4),
+            record.getString(5),
+            record.getString(6),
+            record.getString(7),
+            record.getDate(8)
         );
     }
     
@@ -26,6 +26,7 @@ public class Vehicle {
     private String transmission;
     private double avgRating;
     private int reviewCount;
+    private long version;
     
     /**
      * Default constructor
@@ -76,7 +77,21 @@ public class Vehicle {
         this.avgRating = 0.0;
         this.reviewCount = 0;
     }
-    
+
+    /**
+     * Copy constructor
+     */
+    public Vehicle(Vehicle other) {
+        this(other.id, other.name, other.type, other.make, other.model, other.year,
+             other.color, other.licensePlate, other.dailyRate, other.status,
+             other.imageUrl, other.description,
+             other.features != null ? new ArrayList<>(other.features) : null,
+             other.seatingCapacity, other.fuelType, other.transmission);
+        this.avgRating = other.avgRating;
+        this.reviewCount = other.reviewCount;
+        this.version = other.version;
+    }
+
     // Getters and Setters
     
     public String getId() {
@@ -229,6 +244,18 @@ public class Vehicle {
     public void setReviewCount(int reviewCount) {
         this.reviewCount = reviewCount;
     }
+
+    /**
+     * Number of times this record has been updated; an update made against an
+     * older version is rejected as a conflict
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
     /**
      * Updates the average rating when a new review is added
@@ -0,0 +1,151 @@
+package com.rentalapp.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replaces the whole contents of a file so that a crash at any point leaves
+ * either the old contents or the new ones, never a truncated or half-written
+ * file.
+ * <p>
+ * The new contents are written to a {@code .tmp} file next to the target,
+ * forced to disk (depending on the durability mode) and then renamed over the
+ * target in one atomic step. Readers that already have the old file open keep
+ * reading the old contents. A temp file left behind by a crash is simply
+ * overwritten by the next rewrite.
+ */
+public final class AtomicFileWriter {
+    private static final Logger LOGGER = Logger.getLogger(AtomicFileWriter.class.getName());
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * When rewritten data is forced to the storage device.
+     */
+    public enum Durability {
+        /** Leave flushing to the operating system; survives a process crash but not a power cut */
+        NONE,
+        /** Force the new contents before the rename, so a power cut leaves the old or the new file */
+        FILE,
+        /** Also force the directory after the rename, so the new file is kept once the call returns */
+        DIRECTORY;
+
+        /**
+         * Parses a mode name, falling back to a default for unknown values.
+         */
+        public static Durability parse(String value, Durability defaultValue) {
+            if (value != null) {
+                for (Durability durability : values()) {
+                    if (durability.name().equalsIgnoreCase(value.trim())) {
+                        return durability;
+                    }
+                }
+            }
+            return defaultValue;
+        }
+    }
+
+    // Serializes rewrites of, and appends to, the same file within this process
+    private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Replaces the contents of a file with the given lines.
+     *
+     * @param path the file to replace; it is created if missing
+     * @param lines the new contents, one line each, without line terminators
+     * @param durability when to force the new contents to disk
+     * @throws IOException if the new contents could not be written, in which case the file is unchanged
+     */
+    public static void write(Path path, Collection<String> lines, Durability durability) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+        ByteBuffer contents = encode(lines);
+
+        ReentrantLock lock = lockFor(path);
+        lock.lock();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                if (durability != Durability.NONE) {
+                    channel.force(false);
+                }
+            }
+
+            replace(temp, path);
+
+            if (durability == Durability.DIRECTORY) {
+                forceDirectory(path.toAbsolutePath().getParent());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The lock that rewrites of a file hold, for other writers of the same file
+     * to hold too. Without it an append could land in the old file just as it
+     * is being renamed away.
+     */
+    static ReentrantLock lockFor(Path path) {
+        return LOCKS.computeIfAbsent(path.toAbsolutePath().normalize(), p -> new ReentrantLock());
+    }
+
+    private static void replace(Path temp, Path path) throws IOException {
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Only possible if the data directory spans file systems
+            LOGGER.warning("Atomic rename not supported, replacing non-atomically: " + path);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (Windows) cannot open a directory; the rename is still atomic there
+            LOGGER.log(Level.FINE, "Could not force directory: " + directory, e);
+        }
+    }
+
+    private static ByteBuffer encode(Collection<String> lines) {
+        int size = 0;
+        byte[][] encoded = new byte[lines.size()][];
+        int i = 0;
+        for (String line : lines) {
+            encoded[i] = line.getBytes(StandardCharsets.UTF_8);
+            size += encoded[i].length + LINE_SEPARATOR.length;
+            i++;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] line : encoded) {
+            buffer.put(line).put(LINE_SEPARATOR);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
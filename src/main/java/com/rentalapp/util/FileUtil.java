@@ -1,14 +1,22 @@
 package com.rentalapp.util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +31,21 @@ public class FileUtil {
     // Base directory for file uploads
     private static final String UPLOAD_DIR = "src/main/resources/uploads/";
     
+    // When appended lines are forced to disk: none, batch or record
+    private static final GroupCommitAppender.Durability APPEND_DURABILITY = GroupCommitAppender.Durability.parse(
+            System.getProperty("rentalapp.appendDurability"), GroupCommitAppender.Durability.BATCH);
+    
+    // When rewritten files are forced to disk: none, file or directory
+    private static final AtomicFileWriter.Durability REWRITE_DURABILITY = AtomicFileWriter.Durability.parse(
+            System.getProperty("rentalapp.rewriteDurability"), AtomicFileWriter.Durability.FILE);
+    
+    // Scheme for new record IDs: time_ordered or random_uuid
+    private static final IdGenerator ID_GENERATOR = IdGenerator.parse(
+            System.getProperty("rentalapp.idGenerator"), IdGenerator.TIME_ORDERED);
+    
+    // One group-commit writer per data file, created on first append
+    private static final Map<String, GroupCommitAppender> APPENDERS = new ConcurrentHashMap<>();
+    
     /**
      * Initialize the necessary directories if they don't exist.
      */
@@ -56,65 +79,117 @@ public class FileUtil {
      */
     public static List<String> readAllLines(String fileName) {
         List<String> lines = new ArrayList<>();
+        forEachLine(fileName, line -> lines.add(line.toString()));
+        return lines;
+    }
+    
+    /**
+     * Stream the non-empty lines of a file to a handler without building a list.
+     * <p>
+     * The file is memory-mapped under a shared lock and scanned for line breaks
+     * in place. Pure ASCII lines are handed over as a view onto the mapped bytes,
+     * so nothing is copied unless the handler asks for a String. Other lines are
+     * decoded as UTF-8. The view is reused for the next line, so a handler must
+     * call {@code toString()} on anything it wants to keep.
+     * 
+     * @param fileName the name of the file to read
+     * @param handler receives each line, without its line terminator
+     * @return true if the file was read completely, false otherwise
+     */
+    public static boolean forEachLine(String fileName, Consumer<CharSequence> handler) {
+        try {
+            readEachLine(fileName, handler);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading file: " + fileName, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Like {@link #forEachLine}, but lets read errors through. Used to load the
+     * in-memory stores, which must not mistake an unreadable file for an empty one.
+     * 
+     * @param fileName the name of the file to read
+     * @param handler receives each line, without its line terminator
+     * @throws IOException if the file could not be created or read completely
+     */
+    public static void readEachLine(String fileName, Consumer<CharSequence> handler) throws IOException {
         Path filePath = Paths.get(DATA_DIR + fileName);
         
         if (!Files.exists(filePath)) {
-            try {
-                Files.createFile(filePath);
-                LOGGER.info("Created file: " + filePath);
-                return lines;
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Failed to create file: " + filePath, e);
-                return lines;
-            }
+            Files.createFile(filePath);
+            LOGGER.info("Created file: " + filePath);
+            return;
         }
         
-        try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "r");
-             FileChannel channel = file.getChannel()) {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
             
             // Acquire a shared lock for reading
             try (FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
-                BufferedReader reader = new BufferedReader(new FileReader(filePath.toFile()));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    lines.add(line);
+                long size = channel.size();
+                if (size == 0) {
+                    return;
+                }
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File too large to map: " + fileName);
                 }
+                
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                scanLines(buffer, (int) size, handler);
             }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error reading file: " + fileName, e);
         }
+    }
+    
+    /**
+     * Split a mapped buffer into lines, handling both \n and \r\n terminators.
+     */
+    private static void scanLines(ByteBuffer buffer, int size, Consumer<CharSequence> handler) {
+        MappedLine view = new MappedLine(buffer);
+        int start = 0;
+        boolean ascii = true;
         
-        return lines;
+        for (int pos = 0; pos <= size; pos++) {
+            byte b = pos < size ? buffer.get(pos) : (byte) '\n';
+            if (b != '\n') {
+                ascii &= b >= 0;
+                continue;
+            }
+            
+            int end = pos;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            
+            if (end > start) {
+                if (ascii) {
+                    handler.accept(view.reset(start, end - start));
+                } else {
+                    byte[] bytes = new byte[end - start];
+                    buffer.get(start, bytes);
+                    handler.accept(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+            
+            start = pos + 1;
+            ascii = true;
+        }
     }
     
     /**
      * Write all lines to a file, overwriting any existing content.
+     * <p>
+     * The file is replaced atomically (see {@link #replaceFile}), so a crash
+     * while writing leaves the previous content in place.
      * 
      * @param fileName the name of the file to write to
      * @param lines the lines to write to the file
      * @return true if successful, false otherwise
      */
     public static boolean writeAllLines(String fileName, List<String> lines) {
-        Path filePath = Paths.get(DATA_DIR + fileName);
-        
-        try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw");
-             FileChannel channel = file.getChannel()) {
-            
-            // Acquire an exclusive lock for writing
-            try (FileLock lock = channel.lock()) {
-                // Truncate the file to zero length
-                channel.truncate(0);
-                
-                // Write all lines
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile()))) {
-                    for (String line : lines) {
-                        writer.write(line);
-                        writer.newLine();
-                    }
-                }
-                
-                return true;
-            }
+        try {
+            replaceFile(Paths.get(DATA_DIR + fileName), lines);
+            return true;
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error writing to file: " + fileName, e);
             return false;
@@ -122,41 +197,66 @@ public class FileUtil {
     }
     
     /**
-     * Append a line to a file.
+     * Replace the contents of a file with the given lines, all or nothing.
+     * <p>
+     * The lines go to a temp file that is renamed over the target once
+     * written. Whether it is forced to disk first is set by the
+     * rentalapp.rewriteDurability property: none, file (the default) or
+     * directory.
+     * 
+     * @param filePath the path of the file to replace
+     * @param lines the new content, one line each
+     * @throws IOException if the file could not be written; it is left unchanged
+     */
+    public static void replaceFile(Path filePath, Collection<String> lines) throws IOException {
+        AtomicFileWriter.write(filePath, lines, REWRITE_DURABILITY);
+    }
+    
+    /**
+     * Append a line to a file, waiting until it has been written.
      * 
      * @param fileName the name of the file to append to
      * @param line the line to append
      * @return true if successful, false otherwise
      */
     public static boolean appendLine(String fileName, String line) {
-        Path filePath = Paths.get(DATA_DIR + fileName);
-        
-        try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw");
-             FileChannel channel = file.getChannel()) {
-            
-            // Acquire an exclusive lock for writing
-            try (FileLock lock = channel.lock()) {
-                // Move to the end of the file
-                file.seek(file.length());
-                
-                // Append the line
-                file.writeBytes(line + System.lineSeparator());
-                
-                return true;
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error appending to file: " + fileName, e);
-            return false;
+        return appendLineAsync(fileName, line).join();
+    }
+    
+    /**
+     * Queue a line for appending to a file.
+     * <p>
+     * Lines are handed to the file's group-commit writer, which writes whatever
+     * has queued up in one batch, so concurrent callers share the cost of
+     * locking, writing and (depending on the durability mode) forcing the file.
+     * 
+     * @param fileName the name of the file to append to
+     * @param line the line to append
+     * @return a future completing with true once the line is written, false on error
+     */
+    public static CompletableFuture<Boolean> appendLineAsync(String fileName, String line) {
+        GroupCommitAppender appender = APPENDERS.computeIfAbsent(fileName,
+                name -> new GroupCommitAppender(Paths.get(DATA_DIR + name), APPEND_DURABILITY));
+        return appender.append(line);
+    }
+    
+    /**
+     * Stop the group-commit writers after writing everything still queued.
+     */
+    public static void shutdownAppenders() {
+        for (GroupCommitAppender appender : APPENDERS.values()) {
+            appender.shutdown();
         }
     }
     
     /**
-     * Generate a unique ID.
+     * Generate a unique ID. IDs are time-ordered unless the rentalapp.idGenerator
+     * property selects random UUIDs.
      * 
      * @return a unique ID
      */
     public static String generateUniqueId() {
-        return UUID.randomUUID().toString();
+        return ID_GENERATOR.nextId();
     }
     
     /**
@@ -0,0 +1,214 @@
+package com.rentalapp.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends lines to one file from a single writer thread, in batches.
+ * <p>
+ * Callers enqueue a line and get a future that completes once the line has
+ * been written (and forced to disk, depending on the durability mode). The
+ * writer drains everything that queued up while the previous batch was being
+ * written and writes it with one open, one lock and one {@code write}, so a
+ * burst of N appends pays the file overhead roughly once instead of N times.
+ */
+public class GroupCommitAppender {
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitAppender.class.getName());
+
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * When appended data is forced to the storage device.
+     */
+    public enum Durability {
+        /** Leave flushing to the operating system */
+        NONE,
+        /** One fsync per batch, after all of its lines are written */
+        BATCH,
+        /** One fsync after every line */
+        RECORD;
+
+        /**
+         * Parses a mode name, falling back to a default for unknown values.
+         */
+        public static Durability parse(String value, Durability defaultValue) {
+            if (value != null) {
+                for (Durability durability : values()) {
+                    if (durability.name().equalsIgnoreCase(value.trim())) {
+                        return durability;
+                    }
+                }
+            }
+            return defaultValue;
+        }
+    }
+
+    private static final class Entry {
+        final String line;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Entry(String line) {
+            this.line = line;
+        }
+    }
+
+    private final Path path;
+    private final Durability durability;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Creates an appender and starts its writer thread.
+     *
+     * @param path the file to append to
+     * @param durability when to force written data to disk
+     */
+    public GroupCommitAppender(Path path, Durability durability) {
+        this.path = path;
+        this.durability = durability;
+        this.writer = new Thread(this::drainLoop, "appender-" + path.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a line for appending.
+     *
+     * @param line the line to append, without a line terminator
+     * @return a future that completes with true once the line is written, or false on error
+     */
+    public CompletableFuture<Boolean> append(String line) {
+        Entry entry = new Entry(line);
+
+        if (!running) {
+            // Writer has stopped; write on the caller's thread instead
+            writeBatch(Collections.singletonList(entry));
+            return entry.result;
+        }
+
+        queue.add(entry);
+
+        // Shutdown may have drained the queue between the check and the add. If the
+        // entry is still queued nobody else will write it; if not, whoever took it will
+        if (!running && queue.remove(entry)) {
+            writeBatch(Collections.singletonList(entry));
+        }
+        return entry.result;
+    }
+
+    /**
+     * Stops the writer thread after everything already queued has been written.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything that raced with shutdown is written here
+        List<Entry> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            writeBatch(leftover);
+        }
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        boolean written = false;
+
+        // Keeps the batch out of a concurrent rewrite's rename (see AtomicFileWriter)
+        ReentrantLock rewriteLock = AtomicFileWriter.lockFor(path);
+        rewriteLock.lock();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileLock lock = channel.lock()) {
+
+            if (durability == Durability.RECORD) {
+                for (Entry entry : batch) {
+                    writeFully(channel, encode(Collections.singletonList(entry)));
+                    channel.force(false);
+                }
+            } else {
+                writeFully(channel, encode(batch));
+                if (durability == Durability.BATCH) {
+                    channel.force(false);
+                }
+            }
+            written = true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error appending to file: " + path, e);
+        } finally {
+            rewriteLock.unlock();
+        }
+
+        // Only release callers once the lock is gone, or a caller reading the
+        // file straight away would overlap it
+        for (Entry entry : batch) {
+            entry.result.complete(written);
+        }
+    }
+
+    private static ByteBuffer encode(List<Entry> entries) {
+        List<byte[]> lines = new ArrayList<>(entries.size());
+        int size = 0;
+        for (Entry entry : entries) {
+            byte[] bytes = entry.line.getBytes(StandardCharsets.UTF_8);
+            lines.add(bytes);
+            size += bytes.length + LINE_SEPARATOR.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] line : lines) {
+            buffer.put(line).put(LINE_SEPARATOR);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.rentalapp.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schemes for generating record IDs.
+ * <p>
+ * Time-ordered IDs are 26 characters of Crockford base32 in the ULID layout:
+ * a 48-bit millisecond timestamp, a 16-bit sequence and 64 random bits. IDs
+ * from this process sort in the order they were generated, both as strings
+ * and by creation time, so the newest records are at the end of any ordered
+ * index. The sequence is advanced with a compare-and-set rather than a lock,
+ * and the random bits come from a per-thread generator instead of the shared
+ * SecureRandom behind {@link UUID#randomUUID()}.
+ * <p>
+ * IDs are opaque strings everywhere else, so records created with random
+ * UUIDs keep working next to time-ordered ones.
+ */
+public enum IdGenerator {
+    /** Time-ordered 26-character IDs */
+    TIME_ORDERED {
+        @Override
+        public String nextId() {
+            long now = System.currentTimeMillis() << SEQUENCE_BITS;
+            long previous;
+            long next;
+            do {
+                previous = LAST_TICK.get();
+                // Past the end of the sequence this borrows from the next millisecond
+                next = Math.max(now, previous + 1);
+            } while (!LAST_TICK.compareAndSet(previous, next));
+
+            return encode(next, ThreadLocalRandom.current().nextLong());
+        }
+    },
+    /** Random 36-character UUIDs */
+    RANDOM_UUID {
+        @Override
+        public String nextId() {
+            return UUID.randomUUID().toString();
+        }
+    };
+
+    private static final int SEQUENCE_BITS = 16;
+    private static final int ID_LENGTH = 26;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    // Timestamp and sequence of the last time-ordered ID
+    private static final AtomicLong LAST_TICK = new AtomicLong();
+
+    /**
+     * Generates a new ID.
+     */
+    public abstract String nextId();
+
+    /**
+     * Parses a scheme name, falling back to a default for unknown values.
+     */
+    public static IdGenerator parse(String value, IdGenerator defaultValue) {
+        if (value != null) {
+            for (IdGenerator generator : values()) {
+                if (generator.name().equalsIgnoreCase(value.trim())) {
+                    return generator;
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Writes a 128-bit value as 26 base32 digits, most significant first
+     */
+    private static String encode(long high, long low) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,57 @@
+package com.rentalapp.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable view of one ASCII line inside a mapped file buffer.
+ * Characters are read straight from the buffer; a String is only
+ * created when a caller asks for one.
+ */
+class MappedLine implements CharSequence {
+    
+    private final ByteBuffer buffer;
+    private int offset;
+    private int length;
+    
+    MappedLine(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Point the view at another line of the same buffer.
+     */
+    MappedLine reset(int offset, int length) {
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+    
+    @Override
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + length);
+        }
+        return (char) buffer.get(offset + index);
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range " + start + "-" + end + " of " + length);
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(offset + start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+    
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,189 @@
+package com.rentalapp.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs independent data loads concurrently on a small shared pool.
+ * <p>
+ * Code that needs several full data sets, such as the startup warm-up, can
+ * start them all with {@link #load(String, Supplier)} and then join the
+ * futures, so it waits roughly as long as the slowest load rather than the
+ * sum of all of them. The pool is bounded; when it is saturated, shutting
+ * down or has not been started, a load simply runs on the calling thread.
+ * Every load is timed under its name.
+ */
+public class ParallelLoader {
+    private static final Logger LOGGER = Logger.getLogger(ParallelLoader.class.getName());
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final Map<String, LoadTiming> TIMINGS = new ConcurrentHashMap<>();
+    private static volatile ThreadPoolExecutor executor;
+
+    /**
+     * Accumulated timings of one named load.
+     */
+    public static final class LoadTiming {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getAverageMillis() {
+            long n = count.get();
+            return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, avg=%.2f ms, max=%.2f ms", getCount(), getAverageMillis(), getMaxMillis());
+        }
+    }
+
+    /**
+     * Start the loader pool.
+     *
+     * @param threads the number of loader threads
+     */
+    public static synchronized void start(int threads) {
+        if (executor != null) {
+            return;
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "data-loader-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, ParallelLoader::runRejected);
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+
+        LOGGER.info("Started data loader pool with " + threads + " threads");
+    }
+
+    /**
+     * Stop the loader pool, letting loads already started finish.
+     */
+    public static synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                runAbandoned(executor.shutdownNow());
+            }
+        } catch (InterruptedException e) {
+            runAbandoned(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+
+        LOGGER.info("Data load timings: " + getTimings());
+    }
+
+    /**
+     * Start a load on the pool.
+     *
+     * @param name the name the load is timed under
+     * @param loader performs the load
+     * @return a future for the loaded value
+     */
+    public static <T> CompletableFuture<T> load(String name, Supplier<T> loader) {
+        Supplier<T> timed = () -> {
+            long start = System.nanoTime();
+            try {
+                return loader.get();
+            } finally {
+                long nanos = System.nanoTime() - start;
+                TIMINGS.computeIfAbsent(name, k -> new LoadTiming()).record(nanos);
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Loaded " + name + " in " + nanos / 1_000_000 + " ms");
+                }
+            }
+        };
+
+        ThreadPoolExecutor pool = executor;
+        if (pool == null || pool.isShutdown()) {
+            try {
+                return CompletableFuture.completedFuture(timed.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(timed, pool);
+    }
+
+    /**
+     * Runs a load the pool would not take on the submitting thread. Unlike
+     * {@link ThreadPoolExecutor.CallerRunsPolicy} this also covers a pool
+     * that is shutting down, which would otherwise drop the load and leave
+     * its future incomplete.
+     */
+    private static void runRejected(Runnable task, ThreadPoolExecutor pool) {
+        task.run();
+    }
+
+    // Loads still queued when the pool is forced down complete their futures here
+    private static void runAbandoned(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    /**
+     * Wait for a load, rethrowing its failure unwrapped.
+     *
+     * @param future the future returned by {@link #load(String, Supplier)}
+     * @return the loaded value
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get the timings recorded so far, by load name.
+     *
+     * @return a sorted, read-only view of the timings
+     */
+    public static Map<String, LoadTiming> getTimings() {
+        return Collections.unmodifiableMap(new TreeMap<>(TIMINGS));
+    }
+}
@@ -0,0 +1,307 @@
+package com.rentalapp.util;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reusable tokenizer for one delimited record (one line of a data file).
+ * <p>
+ * Instead of {@code String.split} with a regex, the line is scanned once and
+ * only the field boundaries are remembered, in an offset table that is reused
+ * from line to line. Fields are read by index, and numbers and ISO dates are
+ * parsed straight from the characters, so no substring is created for them.
+ * <p>
+ * The data files disagree on the delimiter ({@code |} for most files,
+ * {@code ,} for bookings and older user lines), so {@link #reset(CharSequence)}
+ * picks it per line. As with {@code String.split}, trailing empty fields are
+ * not counted. A codec is not thread-safe; use one per thread or per loop.
+ */
+public class RecordCodec {
+
+    public static final char PIPE = '|';
+    public static final char COMMA = ',';
+
+    private CharSequence line;
+    private int[] bounds = new int[32];
+    private int fieldCount;
+
+    /**
+     * Tokenizes a line, using '|' if it contains one and ',' otherwise.
+     *
+     * @param line the line to tokenize
+     * @return this codec
+     */
+    public RecordCodec reset(CharSequence line) {
+        return reset(line, delimiterOf(line));
+    }
+
+    /**
+     * Tokenizes a line with an explicit delimiter.
+     *
+     * @param line the line to tokenize
+     * @param delimiter the field delimiter
+     * @return this codec
+     */
+    public RecordCodec reset(CharSequence line, char delimiter) {
+        return reset(line, 0, delimiter);
+    }
+
+    /**
+     * Tokenizes a line from a given offset, ignoring any prefix before it.
+     *
+     * @param line the line to tokenize
+     * @param from the offset of the first field
+     * @param delimiter the field delimiter
+     * @return this codec
+     */
+    public RecordCodec reset(CharSequence line, int from, char delimiter) {
+        this.line = line;
+        int length = line.length();
+        int count = 0;
+        int start = from;
+
+        for (int i = from; i <= length; i++) {
+            if (i == length || line.charAt(i) == delimiter) {
+                if (2 * count + 2 > bounds.length) {
+                    int[] grown = new int[bounds.length * 2];
+                    System.arraycopy(bounds, 0, grown, 0, bounds.length);
+                    bounds = grown;
+                }
+                bounds[2 * count] = start;
+                bounds[2 * count + 1] = i;
+                count++;
+                start = i + 1;
+            }
+        }
+
+        // Match String.split, which drops trailing empty fields
+        while (count > 0 && bounds[2 * count - 2] == bounds[2 * count - 1]) {
+            count--;
+        }
+        fieldCount = count;
+
+        return this;
+    }
+
+    /**
+     * Gets the delimiter a line uses: '|' if present, otherwise ','.
+     */
+    public static char delimiterOf(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == PIPE) {
+                return PIPE;
+            }
+        }
+        return COMMA;
+    }
+
+    /**
+     * Gets the number of fields, not counting trailing empty ones.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Checks if a field is present and non-empty.
+     */
+    public boolean hasValue(int index) {
+        return index < fieldCount && start(index) < end(index);
+    }
+
+    /**
+     * Gets a field as a string.
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        return line.subSequence(start(index), end(index)).toString();
+    }
+
+    /**
+     * Gets a field as an int.
+     *
+     * @throws NumberFormatException if the field is not a valid integer
+     */
+    public int getInt(int index) {
+        long value = getLong(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of int range: " + getString(index));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Gets a field as a long.
+     *
+     * @throws NumberFormatException if the field is not a valid integer
+     */
+    public long getLong(int index) {
+        checkIndex(index);
+        int pos = start(index);
+        int end = end(index);
+        boolean negative = false;
+
+        if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            negative = line.charAt(pos) == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 18) {
+            return Long.parseLong(getString(index));
+        }
+
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = line.charAt(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + getString(index) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Gets a field as a double.
+     */
+    public double getDouble(int index) {
+        return Double.parseDouble(getString(index));
+    }
+
+    /**
+     * Gets a field as a boolean, with the same rules as {@link Boolean#parseBoolean(String)}.
+     */
+    public boolean getBoolean(int index) {
+        checkIndex(index);
+        int pos = start(index);
+        if (end(index) - pos != 4) {
+            return false;
+        }
+        return Character.toLowerCase(line.charAt(pos)) == 't'
+                && Character.toLowerCase(line.charAt(pos + 1)) == 'r'
+                && Character.toLowerCase(line.charAt(pos + 2)) == 'u'
+                && Character.toLowerCase(line.charAt(pos + 3)) == 'e';
+    }
+
+    /**
+     * Gets a field as a BigDecimal. Plain decimals of up to 18 digits are built
+     * from their unscaled value; anything else falls back to the string constructor.
+     *
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public BigDecimal getDecimal(int index) {
+        checkIndex(index);
+        int pos = start(index);
+        int end = end(index);
+        boolean negative = false;
+
+        if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            negative = line.charAt(pos) == '-';
+            pos++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+
+        for (; pos < end; pos++) {
+            char c = line.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                digits = Integer.MAX_VALUE;
+                break;
+            }
+            if (digits > 18) {
+                break;
+            }
+        }
+
+        if (digits == 0 || digits > 18) {
+            return new BigDecimal(getString(index));
+        }
+
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * Gets a field as an ISO date (yyyy-MM-dd).
+     *
+     * @throws DateTimeParseException if the field is not a valid date
+     */
+    public LocalDate getDate(int index) {
+        checkIndex(index);
+        int pos = start(index);
+        if (end(index) - pos != 10 || line.charAt(pos + 4) != '-' || line.charAt(pos + 7) != '-') {
+            throw dateError(index, "yyyy-MM-dd");
+        }
+
+        try {
+            return LocalDate.of(digits(index, pos, 4), digits(index, pos + 5, 2), digits(index, pos + 8, 2));
+        } catch (DateTimeException e) {
+            throw dateError(index, "yyyy-MM-dd");
+        }
+    }
+
+    /**
+     * Gets a field as a date-time in the "yyyy-MM-dd HH:mm:ss" format.
+     *
+     * @throws DateTimeParseException if the field is not a valid date-time
+     */
+    public LocalDateTime getDateTime(int index) {
+        checkIndex(index);
+        int pos = start(index);
+        if (end(index) - pos != 19 || line.charAt(pos + 4) != '-' || line.charAt(pos + 7) != '-'
+                || line.charAt(pos + 10) != ' ' || line.charAt(pos + 13) != ':' || line.charAt(pos + 16) != ':') {
+            throw dateError(index, "yyyy-MM-dd HH:mm:ss");
+        }
+
+        try {
+            return LocalDateTime.of(digits(index, pos, 4), digits(index, pos + 5, 2), digits(index, pos + 8, 2),
+                    digits(index, pos + 11, 2), digits(index, pos + 14, 2), digits(index, pos + 17, 2));
+        } catch (DateTimeException e) {
+            throw dateError(index, "yyyy-MM-dd HH:mm:ss");
+        }
+    }
+
+    private int digits(int index, int pos, int count) {
+        int value = 0;
+        for (int i = pos; i < pos + count; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new DateTimeException("Non-digit in field " + index);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private DateTimeParseException dateError(int index, String pattern) {
+        String text = getString(index);
+        return new DateTimeParseException("Text '" + text + "' does not match " + pattern, text, 0);
+    }
+
+    private int start(int index) {
+        return bounds[2 * index];
+    }
+
+    private int end(int index) {
+        return bounds[2 * index + 1];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+}
@@ -177,4 +177,21 @@ public class ValidationUtil {
     public static boolean isValidRating(int rating) {
         return rating >= 1 && rating <= 5;
     }
+    
+    /**
+     * Parses the record version a form was loaded with.
+     * 
+     * @param versionStr the submitted version
+     * @return the version, or -1 if it is missing or not a valid version
+     */
+    public static long parseVersion(String versionStr) {
+        if (versionStr == null || versionStr.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return Math.max(-1, Long.parseLong(versionStr.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
@@ -261,6 +261,47 @@
             </div>
         </div>
     </div>
+    
+    <!-- Lookup Filters -->
+    <div class="row mt-4">
+        <div class="col-md-12">
+            <div class="card shadow-sm">
+                <div class="card-header bg-white">
+                    <h5 class="mb-0"><i class="fas fa-filter me-2"></i> Lookup Filters</h5>
+                </div>
+                <div class="card-body p-0">
+                    <div class="table-responsive">
+                        <table class="table table-sm mb-0">
+                            <thead class="table-light">
+                                <tr>
+                                    <th>Filter</th>
+                                    <th class="text-end">Keys</th>
+                                    <th class="text-end">Checks</th>
+                                    <th class="text-end">Answered by Filter</th>
+                                    <th class="text-end">False Positives</th>
+                                    <th class="text-end">Observed FP Rate</th>
+                                    <th class="text-end">Expected FP Rate</th>
+                                </tr>
+                            </thead>
+                            <tbody>
+                                <c:forEach var="filter" items="${existenceFilters}">
+                                    <tr>
+                                        <td>${filter.name}</td>
+                                        <td class="text-end">${filter.keyCount}</td>
+                                        <td class="text-end">${filter.checks}</td>
+                                        <td class="text-end">${filter.definiteNegatives}</td>
+                                        <td class="text-end">${filter.falsePositives}</td>
+                                        <td class="text-end"><fmt:formatNumber value="${filter.observedFalsePositiveRate}" type="percent" minFractionDigits="2"/></td>
+                                        <td class="text-end"><fmt:formatNumber value="${filter.expectedFalsePositiveRate}" type="percent" minFractionDigits="2"/></td>
+                                    </tr>
+                                </c:forEach>
+                            </tbody>
+                        </table>
+                    </div>
+                </div>
+            </div>
+        </div>
+    </div>
 </div>
 
 <jsp:include page="/includes/footer.jsp" />
\ No newline at end of file
@@ -240,6 +240,7 @@
                     <p>This will mark the payment as approved and update the booking status.</p>
                     
                     <input type="hidden" id="approvePaymentId" name="paymentId" value="${payment.id}">
+                    <input type="hidden" name="version" value="${payment.version}">
                     <input type="hidden" name="action" value="approve">
                     
                     <div class="mb-3">
@@ -275,6 +276,7 @@
                     <p class="text-danger">This will mark the payment as rejected. Please provide a reason for rejection.</p>
                     
                     <input type="hidden" id="rejectPaymentId" name="paymentId" value="${payment.id}">
+                    <input type="hidden" name="version" value="${payment.version}">
                     <input type="hidden" name="action" value="reject">
                     
                     <div class="mb-3">
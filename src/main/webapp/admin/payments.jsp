@@ -214,6 +214,7 @@
                                                     data-bs-toggle="modal" 
                                                     data-bs-target="#approvePaymentModal" 
                                                     data-payment-id="${payment.id}"
+                                                    data-payment-version="${payment.version}"
                                                     title="Approve">
                                                 <i class="fas fa-check"></i>
                                             </button>
@@ -222,6 +223,7 @@
                                                     data-bs-toggle="modal" 
                                                     data-bs-target="#rejectPaymentModal" 
                                                     data-payment-id="${payment.id}"
+                                                    data-payment-version="${payment.version}"
                                                     title="Reject">
                                                 <i class="fas fa-times"></i>
                                             </button>
@@ -253,6 +255,7 @@
                     <p>This will mark the payment as approved and update the booking status.</p>
                     
                     <input type="hidden" id="approvePaymentId" name="paymentId" value="">
+                    <input type="hidden" id="approvePaymentVersion" name="version" value="">
                     <input type="hidden" name="action" value="approve">
                     
                     <div class="mb-3">
@@ -288,6 +291,7 @@
                     <p class="text-danger">This will mark the payment as rejected. Please provide a reason for rejection.</p>
                     
                     <input type="hidden" id="rejectPaymentId" name="paymentId" value="">
+                    <input type="hidden" id="rejectPaymentVersion" name="version" value="">
                     <input type="hidden" name="action" value="reject">
                     
                     <div class="mb-3">
@@ -317,6 +321,7 @@
                 const button = event.relatedTarget;
                 const paymentId = button.getAttribute('data-payment-id');
                 document.getElementById('approvePaymentId').value = paymentId;
+                document.getElementById('approvePaymentVersion').value = button.getAttribute('data-payment-version');
             });
         }
         
@@ -327,6 +332,7 @@
                 const button = event.relatedTarget;
                 const paymentId = button.getAttribute('data-payment-id');
                 document.getElementById('rejectPaymentId').value = paymentId;
+                document.getElementById('rejectPaymentVersion').value = button.getAttribute('data-payment-version');
             });
         }
     });
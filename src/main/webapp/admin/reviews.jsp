@@ -0,0 +1,122 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+<jsp:include page="/includes/header.jsp">
+    <jsp:param name="title" value="Search Reviews" />
+</jsp:include>
+
+<!-- Admin Review Search Header -->
+<div class="container-fluid bg-info text-dark py-3">
+    <div class="container">
+        <div class="row align-items-center">
+            <div class="col-md-8">
+                <h1><i class="fas fa-comments me-2"></i> Review Search</h1>
+                <p class="lead mb-0">Find customer reviews by what they say</p>
+            </div>
+            <div class="col-md-4 text-md-end">
+                <a href="${pageContext.request.contextPath}/admin/dashboard" class="btn btn-outline-dark me-2">
+                    <i class="fas fa-tachometer-alt"></i> Dashboard
+                </a>
+            </div>
+        </div>
+    </div>
+</div>
+
+<!-- Review Search Content -->
+<div class="container my-4">
+    <c:if test="${not empty errorMessage}">
+        <div class="alert alert-danger alert-dismissible fade show" role="alert">
+            ${errorMessage}
+            <button type="button" class="btn-close" data-bs-dismiss="alert" aria-label="Close"></button>
+        </div>
+    </c:if>
+
+    <!-- Search Form -->
+    <form action="${pageContext.request.contextPath}/admin/reviews" method="get" class="mb-4">
+        <div class="input-group">
+            <span class="input-group-text"><i class="fas fa-search"></i></span>
+            <input type="search" class="form-control" name="q" value="<c:out value='${q}' />"
+                   placeholder="Keywords from review comments, e.g. clean comfortable" autofocus>
+            <button type="submit" class="btn btn-primary">Search</button>
+        </div>
+    </form>
+
+    <c:if test="${not empty q}">
+        <!-- Results List -->
+        <div class="card shadow-sm">
+            <div class="card-header bg-white d-flex justify-content-between align-items-center">
+                <h5 class="mb-0"><i class="fas fa-star me-2"></i> Matching Reviews</h5>
+                <span class="badge bg-primary">
+                    ${reviews.size()} Reviews<c:if test="${reviews.size() >= maxResults}"> (best ${maxResults} shown)</c:if>
+                </span>
+            </div>
+            <div class="card-body p-0">
+                <div class="table-responsive">
+                    <table class="table table-hover mb-0">
+                        <thead class="table-light">
+                            <tr>
+                                <th>Vehicle</th>
+                                <th>User</th>
+                                <th>Rating</th>
+                                <th>Comment</th>
+                                <th>Date</th>
+                                <th>Actions</th>
+                            </tr>
+                        </thead>
+                        <tbody>
+                            <c:if test="${empty reviews}">
+                                <tr>
+                                    <td colspan="6" class="text-center py-4">
+                                        <p class="mb-0 text-muted">No reviews match your search.</p>
+                                    </td>
+                                </tr>
+                            </c:if>
+
+                            <c:forEach items="${reviews}" var="review">
+                                <tr>
+                                    <td>
+                                        <c:set var="vehicle" value="${vehiclesMap[review.vehicleId]}" />
+                                        <c:choose>
+                                            <c:when test="${not empty vehicle}">
+                                                <a href="${pageContext.request.contextPath}/vehicles/details?id=${vehicle.id}" class="text-decoration-none">
+                                                    ${vehicle.make} ${vehicle.model}
+                                                </a>
+                                            </c:when>
+                                            <c:otherwise>
+                                                <span class="text-muted">Unknown Vehicle</span>
+                                            </c:otherwise>
+                                        </c:choose>
+                                    </td>
+                                    <td>
+                                        <c:set var="user" value="${usersMap[review.userId]}" />
+                                        <c:choose>
+                                            <c:when test="${not empty user}">
+                                                ${user.fullName}
+                                            </c:when>
+                                            <c:otherwise>
+                                                <span class="text-muted">Unknown User</span>
+                                            </c:otherwise>
+                                        </c:choose>
+                                    </td>
+                                    <td>
+                                        <span class="badge bg-warning text-dark">${review.rating} / 5</span>
+                                    </td>
+                                    <td><c:out value="${review.comment}" /></td>
+                                    <td><fmt:formatDate value="${review.reviewDate}" pattern="MM/dd/yyyy" /></td>
+                                    <td>
+                                        <a href="${pageContext.request.contextPath}/reviews/delete?id=${review.id}"
+                                           class="btn btn-sm btn-outline-danger">
+                                            <i class="fas fa-trash"></i>
+                                        </a>
+                                    </td>
+                                </tr>
+                            </c:forEach>
+                        </tbody>
+                    </table>
+                </div>
+            </div>
+        </div>
+    </c:if>
+</div>
+
+<jsp:include page="/includes/footer.jsp" />
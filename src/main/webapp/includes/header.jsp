@@ -53,6 +53,7 @@
                                 <li><a class="dropdown-item" href="${pageContext.request.contextPath}/admin/users">Manage Users</a></li>
                                 <li><a class="dropdown-item" href="${pageContext.request.contextPath}/admin/vehicles/add">Add Vehicle</a></li>
                                 <li><a class="dropdown-item" href="${pageContext.request.contextPath}/payments">Manage Payments</a></li>
+                                <li><a class="dropdown-item" href="${pageContext.request.contextPath}/admin/reviews">Search Reviews</a></li>
                             </ul>
                         </li>
                     </c:if>
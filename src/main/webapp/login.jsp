@@ -13,11 +13,11 @@
             <div class="card-body p-4">
                 <form action="${pageContext.request.contextPath}/login" method="post">
                     <div class="mb-3">
-                        <label for="username" class="form-label">Username</label>
+                        <label for="username" class="form-label">Username or Email</label>
                         <div class="input-group">
                             <span class="input-group-text"><i class="fas fa-user"></i></span>
                             <input type="text" class="form-control" id="username" name="username" 
-                                   required placeholder="Enter your username">
+                                   required placeholder="Enter your username or email">
                         </div>
                     </div>
                     
@@ -111,9 +111,19 @@
                                     <c:forEach begin="1" end="5" var="star">
                                         <i class="fas fa-star ${star <= averageRating ? 'text-warning' : 'text-muted'}"></i>
                                     </c:forEach>
-                                    <span class="ms-2">${averageRating}/5</span>
+                                    <span class="ms-2"><fmt:formatNumber value="${averageRating}" pattern="0.0"/>/5</span>
                                 </div>
                             </div>
+                            <c:forEach var="starCount" items="${ratingSummary.starCounts}" varStatus="row">
+                                <div class="d-flex align-items-center small mt-1">
+                                    <span class="me-2" style="width: 3em;">${6 - row.count} <i class="fas fa-star text-warning"></i></span>
+                                    <div class="progress flex-grow-1" style="height: 8px;">
+                                        <div class="progress-bar bg-warning" role="progressbar"
+                                             style="width: ${ratingSummary.count > 0 ? starCount * 100 / ratingSummary.count : 0}%"></div>
+                                    </div>
+                                    <span class="ms-2 text-muted" style="width: 2em;">${starCount}</span>
+                                </div>
+                            </c:forEach>
                         </div>
                         
                         <div class="review-list">
@@ -19,6 +19,7 @@
             <div class="card-body">
                 <form action="${pageContext.request.contextPath}/admin/vehicles/edit" method="post">
                     <input type="hidden" name="id" value="${vehicle.id}">
+                    <input type="hidden" name="version" value="${vehicle.version}">
                     
                     <div class="row mb-3">
                         <div class="col-md-6">
@@ -25,14 +25,23 @@
     </div>
     <div class="card-body">
         <form action="${pageContext.request.contextPath}/vehicles" method="get" id="vehicleFilterForm">
+            <div class="row">
+                <div class="col-12 mb-3">
+                    <div class="input-group">
+                        <span class="input-group-text"><i class="fas fa-search"></i></span>
+                        <input type="search" class="form-control" id="q" name="q" value="<c:out value='${q}' />"
+                               placeholder="Search by name, model, description or features">
+                    </div>
+                </div>
+            </div>
             <div class="row">
                 <div class="col-md-3 mb-3">
                     <label for="type" class="form-label">Vehicle Type</label>
                     <select class="form-select" id="type" name="type">
                         <option value="">All Types</option>
-                        <c:forEach var="vehicleType" items="${vehicleTypes}">
-                            <option value="${vehicleType}" ${type eq vehicleType ? 'selected' : ''}>
-                                ${vehicleType}
+                        <c:forEach var="facet" items="${typeCounts}">
+                            <option value="${facet.value}" ${type eq facet.value ? 'selected' : ''}>
+                                ${facet.label} (${facet.count})
                             </option>
                         </c:forEach>
                     </select>
@@ -41,19 +50,30 @@
                     <label for="make" class="form-label">Make</label>
                     <select class="form-select" id="make" name="make">
                         <option value="">All Makes</option>
-                        <c:forEach var="vehicleMake" items="${vehicleMakes}">
-                            <option value="${vehicleMake}" ${make eq vehicleMake ? 'selected' : ''}>
-                                ${vehicleMake}
+                        <c:forEach var="facet" items="${makeCounts}">
+                            <option value="${facet.value}" ${make eq facet.value ? 'selected' : ''}>
+                                ${facet.label} (${facet.count})
                             </option>
                         </c:forEach>
                     </select>
                 </div>
-                <div class="col-md-3 mb-3">
+                <div class="col-md-2 mb-3">
                     <label for="model" class="form-label">Model</label>
                     <input type="text" class="form-control" id="model" name="model" value="${model}" 
                            placeholder="Any model">
                 </div>
-                <div class="col-md-3 mb-3">
+                <div class="col-md-2 mb-3">
+                    <label for="priceRange" class="form-label">Daily Rate</label>
+                    <select class="form-select" id="priceRange" name="priceRange">
+                        <option value="">Any Price</option>
+                        <c:forEach var="facet" items="${priceCounts}">
+                            <option value="${facet.value}" ${priceRange eq facet.value ? 'selected' : ''}>
+                                ${facet.label} (${facet.count})
+                            </option>
+                        </c:forEach>
+                    </select>
+                </div>
+                <div class="col-md-2 mb-3">
                     <label for="sortBy" class="form-label">Sort By</label>
                     <select class="form-select" id="sortBy" name="sortBy">
                         <option value="" ${empty sortBy ? 'selected' : ''}>Default</option>
@@ -78,7 +98,18 @@
                         <option value="desc" ${sortOrder eq 'desc' ? 'selected' : ''}>Descending</option>
                     </select>
                 </div>
-                <div class="col-md-6 mb-3 text-end">
+                <div class="col-md-2 mb-3">
+                    <input type="date" class="form-control" id="startDate" name="startDate" value="<c:out value='${startDate}' />"
+                           title="Free from">
+                </div>
+                <div class="col-md-2 mb-3">
+                    <input type="date" class="form-control ${not empty dateRangeError ? 'is-invalid' : ''}" id="endDate"
+                           name="endDate" value="<c:out value='${endDate}' />" title="Free until">
+                    <c:if test="${not empty dateRangeError}">
+                        <div class="invalid-feedback">${dateRangeError}</div>
+                    </c:if>
+                </div>
+                <div class="col-md-2 mb-3 text-end">
                     <button type="submit" class="btn btn-primary">
                         <i class="fas fa-search me-2"></i> Apply Filters
                     </button>
@@ -167,4 +198,30 @@
     </c:choose>
 </div>
 
+<!-- Pagination -->
+<c:if test="${totalPages > 1}">
+    <nav aria-label="Vehicle pages">
+        <ul class="pagination justify-content-center">
+            <c:forEach begin="1" end="${totalPages}" var="pageNumber">
+                <c:url var="pageUrl" value="/vehicles">
+                    <c:param name="q" value="${q}" />
+                    <c:param name="type" value="${type}" />
+                    <c:param name="make" value="${make}" />
+                    <c:param name="model" value="${model}" />
+                    <c:param name="priceRange" value="${priceRange}" />
+                    <c:param name="availableOnly" value="${availableOnly}" />
+                    <c:param name="sortBy" value="${sortBy}" />
+                    <c:param name="sortOrder" value="${sortOrder}" />
+                    <c:param name="startDate" value="${startDate}" />
+                    <c:param name="endDate" value="${endDate}" />
+                    <c:param name="page" value="${pageNumber}" />
+                </c:url>
+                <li class="page-item ${pageNumber == currentPage ? 'active' : ''}">
+                    <a class="page-link" href="${pageUrl}">${pageNumber}</a>
+                </li>
+            </c:forEach>
+        </ul>
+    </nav>
+</c:if>
+
 <jsp:include page="/includes/footer.jsp" />